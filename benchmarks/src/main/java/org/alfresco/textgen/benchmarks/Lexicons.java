@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen.benchmarks;
+
+/**
+ * The lexicons shipped with alfresco-text-gen.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+final class Lexicons
+{
+    static final String STEM_EN = "alfresco/textgen/lexicon-stem-en.txt";
+    
+    static final String STEM_EN_BINARY = "alfresco/textgen/lexicon-stem-en.bin";
+    
+    private Lexicons()
+    {
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.textgen.TextGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Query generation for documents and for the corpus as a whole.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark
+{
+    /**
+     * The number of words considered from each document - about 100 bytes, 1 MB and 100 MB of content
+     */
+    @Param({"20", "200000", "20000000"})
+    int wordLimit;
+    
+    TextGenerator textGenerator;
+    
+    @Setup
+    public void setup()
+    {
+        textGenerator = new TextGenerator(Lexicons.STEM_EN);
+    }
+    
+    @State(Scope.Thread)
+    public static class ThreadRandom
+    {
+        Random random = new Random(0);
+    }
+    
+    @Benchmark
+    public String generateQueryStringForDocument(ThreadRandom random)
+    {
+        return textGenerator.generateQueryString(random.random.nextLong(), 5, wordLimit);
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String generateQueryStringForDocumentThreaded(ThreadRandom random)
+    {
+        return textGenerator.generateQueryString(random.random.nextLong(), 5, wordLimit);
+    }
+    
+    @Benchmark
+    public String generateQueryStringForCorpus()
+    {
+        return textGenerator.generateQueryString(2, 1e-6);
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String generateQueryStringForCorpusThreaded()
+    {
+        return textGenerator.generateQueryString(2, 1e-6);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alfresco.textgen.SamplerVersion;
+import org.alfresco.textgen.TextGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Draining generated documents of several sizes. Each operation is one whole document, so divide by the document
+ * size for bytes per second.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RandomTextInputStreamBenchmark
+{
+    private static final AtomicLong SEEDS = new AtomicLong();
+    
+    @Param({"1024", "65536", "1048576", "16777216"})
+    long size;
+    
+    @Param({"LEGACY", "ALIAS"})
+    SamplerVersion samplerVersion;
+    
+    TextGenerator textGenerator;
+    
+    @Setup
+    public void setup()
+    {
+        textGenerator = new TextGenerator(Lexicons.STEM_EN, samplerVersion);
+    }
+    
+    @State(Scope.Thread)
+    public static class Buffer
+    {
+        byte[] bytes = new byte[8192];
+    }
+    
+    @Benchmark
+    public long singleByteRead() throws IOException
+    {
+        InputStream is = textGenerator.getInputStream(SEEDS.incrementAndGet(), size);
+        long total = 0;
+        while(is.read() != -1)
+        {
+            total++;
+        }
+        return total;
+    }
+    
+    @Benchmark
+    public long bulkRead(Buffer buffer) throws IOException
+    {
+        return drain(textGenerator.getInputStream(SEEDS.incrementAndGet(), size), buffer.bytes);
+    }
+    
+    @Benchmark
+    public long bulkReadWithStrings(Buffer buffer) throws IOException
+    {
+        return drain(textGenerator.getInputStream(SEEDS.incrementAndGet(), size, "P100.00", "P010.00", "P001.00"), buffer.bytes);
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long bulkReadThreaded(Buffer buffer) throws IOException
+    {
+        return drain(textGenerator.getInputStream(SEEDS.incrementAndGet(), size), buffer.bytes);
+    }
+    
+    private long drain(InputStream is, byte[] bytes) throws IOException
+    {
+        long total = 0;
+        int read;
+        while((read = is.read(bytes, 0, bytes.length)) != -1)
+        {
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.textgen.LexiconCache;
+import org.alfresco.textgen.TextGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating a text generator, both loading the lexicon and taking it from the shared cache.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextGeneratorBenchmark
+{
+    @Param({Lexicons.STEM_EN, Lexicons.STEM_EN_BINARY})
+    String lexicon;
+    
+    @Benchmark
+    public TextGenerator constructLoading()
+    {
+        LexiconCache.clear();
+        return new TextGenerator(lexicon);
+    }
+    
+    @Benchmark
+    public TextGenerator constructCached()
+    {
+        return new TextGenerator(lexicon);
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public TextGenerator constructCachedThreaded()
+    {
+        return new TextGenerator(lexicon);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.textgen.SamplerVersion;
+import org.alfresco.textgen.TextGenerator;
+import org.alfresco.textgen.WordGenerator;
+import org.alfresco.textgen.WordSampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Word selection from the full English lexicon.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordGeneratorBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class Words
+    {
+        @Param({"LEGACY", "ALIAS"})
+        SamplerVersion samplerVersion;
+        
+        WordGenerator wordGenerator;
+        
+        WordSampler sampler;
+        
+        @Setup
+        public void setup()
+        {
+            wordGenerator = new TextGenerator(Lexicons.STEM_EN).getWordGenerator();
+            sampler = samplerVersion.getSampler(wordGenerator);
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class ThreadRandom
+    {
+        Random random = new Random(0);
+    }
+    
+    @Benchmark
+    public int getWordIndex(Words words, ThreadRandom random)
+    {
+        return words.sampler.getWordIndex(random.random.nextDouble());
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int getWordIndexThreaded(Words words, ThreadRandom random)
+    {
+        return words.sampler.getWordIndex(random.random.nextDouble());
+    }
+    
+    @Benchmark
+    public String getWord(Words words, ThreadRandom random)
+    {
+        return words.wordGenerator.getWord(random.random.nextDouble());
+    }
+    
+    @Benchmark
+    public List<String> getWordsLessFrequent(Words words, ThreadRandom random)
+    {
+        return words.wordGenerator.getWordsLessFrequent(10 + random.random.nextInt(10));
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<String> getWordsLessFrequentThreaded(Words words, ThreadRandom random)
+    {
+        return words.wordGenerator.getWordsLessFrequent(10 + random.random.nextInt(10));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+/**
+ * Constant time word selection using Walker's alias method (as described by Vose).
+ * <p>
+ * The table is built once from the word frequencies. Each value selects a column and then either the column word or
+ * its alias. The table is built with integer arithmetic so the same word table always gives the same selection.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class AliasWordSampler implements WordSampler
+{
+    private final int size;
+    
+    private final double[] probabilities;
+    
+    private final int[] aliases;
+    
+    public AliasWordSampler(long[] frequencies, int size)
+    {
+        this.size = size;
+        this.probabilities = new double[size];
+        this.aliases = new int[size];
+        
+        long total = 0;
+        for(int i = 0; i < size; i++)
+        {
+            total += frequencies[i];
+        }
+        
+        long[] scaled = new long[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for(int i = 0; i < size; i++)
+        {
+            scaled[i] = frequencies[i] * size;
+            if(scaled[i] < total)
+            {
+                small[smallCount++] = i;
+            }
+            else
+            {
+                large[largeCount++] = i;
+            }
+        }
+        
+        while((smallCount > 0) && (largeCount > 0))
+        {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            
+            probabilities[less] = (double)scaled[less] / total;
+            aliases[less] = more;
+            
+            scaled[more] = scaled[more] + scaled[less] - total;
+            if(scaled[more] < total)
+            {
+                small[smallCount++] = more;
+            }
+            else
+            {
+                large[largeCount++] = more;
+            }
+        }
+        
+        while(largeCount > 0)
+        {
+            int more = large[--largeCount];
+            probabilities[more] = 1.0;
+            aliases[more] = more;
+        }
+        // Can not happen with exact arithmetic but keep the table complete
+        while(smallCount > 0)
+        {
+            int less = small[--smallCount];
+            probabilities[less] = 1.0;
+            aliases[less] = less;
+        }
+    }
+    
+    public int getWordIndex(double value)
+    {
+        if((value < 0) || (value > 1))
+        {
+            return -1;
+        }
+        
+        if(size == 0)
+        {
+            return -1;
+        }
+        
+        double scaled = value * size;
+        int column = (int)scaled;
+        if(column >= size)
+        {
+            column = size - 1;
+        }
+        return (scaled - column) < probabilities[column] ? column : aliases[column];
+    }
+}
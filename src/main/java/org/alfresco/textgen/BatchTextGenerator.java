@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generate many documents concurrently, one document per task on an executor, and hand each finished document to a
+ * sink. Each document has the same content as {@link RandomTextProvider#getInputStream(long, long, String...)} for
+ * its seed.
+ * <p>
+ * Only a bounded number of documents are generated or waiting for the sink at any time. When that many are in
+ * flight no more are started until the sink has taken one, so a slow sink holds back generation rather than filling
+ * memory.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class BatchTextGenerator
+{
+    private WordGenerator wg;
+    
+    private WordSampler sampler;
+    
+    private Executor executor;
+    
+    public BatchTextGenerator(WordGenerator wg, WordSampler sampler, Executor executor)
+    {
+        this.wg = wg;
+        this.sampler = sampler;
+        this.executor = executor;
+    }
+    
+    /**
+     * Create an executor that runs each task on a new virtual thread if the JVM supports them, otherwise on a fixed
+     * pool with a thread for each processor. The caller should shut it down when it is no longer needed.
+     */
+    public static ExecutorService newDefaultExecutor()
+    {
+        try
+        {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)factory.invoke(null);
+        }
+        catch(Exception e)
+        {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+    
+    /**
+     * Generate a document for each seed in a range. This returns once every document has been given to the sink.
+     * <p>
+     * If generation or the sink fails no more documents are started, the documents in flight are discarded and the
+     * first failure is thrown.
+     * 
+     * @param fromSeed - the first seed, inclusive
+     * @param toSeed - the last seed, exclusive
+     * @param length - the length of the document for each seed; each document is held in memory so must fit in an array
+     * @param maxInFlight - the most documents that can be generated or waiting for the sink at once
+     * @param ordered - deliver the documents in seed order, one at a time; otherwise documents are delivered as soon
+     *        as they are ready and the sink must be thread safe
+     * @param sink - receives each document
+     * @param strings - an optional array of strings, as for {@link RandomTextProvider#getInputStream(long, long, String...)}
+     * @return the total bytes delivered and the time taken
+     */
+    public WriteStatistics generate(long fromSeed, long toSeed, DocumentLength length, int maxInFlight, boolean ordered, DocumentSink sink, String... strings) throws IOException, InterruptedException
+    {
+        if(maxInFlight <= 0)
+        {
+            throw new IllegalArgumentException("At least one document must be allowed in flight: " + maxInFlight);
+        }
+        long start = System.nanoTime();
+        Batch batch = new Batch(fromSeed, length, maxInFlight, ordered, sink, strings);
+        for(long seed = fromSeed; (seed < toSeed) && (batch.failure.get() == null); seed++)
+        {
+            batch.permits.acquire();
+            try
+            {
+                executor.execute(batch.new DocumentTask(seed));
+            }
+            catch(RuntimeException e)
+            {
+                batch.permits.release();
+                batch.fail(e);
+            }
+        }
+        batch.permits.acquire(maxInFlight);
+        
+        Throwable failure = batch.failure.get();
+        if(failure instanceof IOException)
+        {
+            throw (IOException)failure;
+        }
+        else if(failure instanceof RuntimeException)
+        {
+            throw (RuntimeException)failure;
+        }
+        else if(failure instanceof Error)
+        {
+            throw (Error)failure;
+        }
+        return new WriteStatistics(batch.bytes.get(), System.nanoTime() - start);
+    }
+    
+    /**
+     * Receives generated documents.
+     */
+    public interface DocumentSink
+    {
+        /**
+         * @param seed - the seed the document was generated from
+         * @param content - the document, which the sink may keep
+         */
+        void accept(long seed, byte[] content) throws IOException;
+    }
+    
+    /**
+     * The state of one call to generate
+     */
+    private class Batch
+    {
+        final DocumentLength length;
+        final boolean ordered;
+        final DocumentSink sink;
+        final String[] strings;
+        final Semaphore permits;
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicLong bytes = new AtomicLong();
+        
+        // Documents that are ready but waiting for an earlier seed, guarded by the map
+        final Map<Long, byte[]> pending = new HashMap<Long, byte[]>();
+        long nextSeed;
+        // Whether a thread is delivering documents in order, so only one does at a time; guarded by the map
+        boolean draining = false;
+        
+        Batch(long fromSeed, DocumentLength length, int maxInFlight, boolean ordered, DocumentSink sink, String[] strings)
+        {
+            this.length = length;
+            this.ordered = ordered;
+            this.sink = sink;
+            this.strings = strings;
+            this.permits = new Semaphore(maxInFlight);
+            this.nextSeed = fromSeed;
+        }
+        
+        void fail(Throwable t)
+        {
+            failure.compareAndSet(null, t);
+            synchronized(pending)
+            {
+                permits.release(pending.size());
+                pending.clear();
+            }
+        }
+        
+        void deliver(long seed, byte[] content)
+        {
+            if(!ordered)
+            {
+                try
+                {
+                    sink.accept(seed, content);
+                    bytes.addAndGet(content.length);
+                }
+                catch(Throwable t)
+                {
+                    fail(t);
+                }
+                finally
+                {
+                    permits.release();
+                }
+                return;
+            }
+            
+            synchronized(pending)
+            {
+                if(failure.get() != null)
+                {
+                    permits.release();
+                    return;
+                }
+                pending.put(seed, content);
+                if(draining)
+                {
+                    // The thread that is draining will deliver it in turn
+                    return;
+                }
+                draining = true;
+            }
+            
+            // The sink is called without the lock, so a slow sink does not hold up the threads that finish documents
+            while(true)
+            {
+                long nextToDeliver;
+                byte[] next;
+                synchronized(pending)
+                {
+                    next = failure.get() == null ? pending.remove(nextSeed) : null;
+                    if(next == null)
+                    {
+                        draining = false;
+                        return;
+                    }
+                    nextToDeliver = nextSeed++;
+                }
+                try
+                {
+                    sink.accept(nextToDeliver, next);
+                    bytes.addAndGet(next.length);
+                }
+                catch(Throwable t)
+                {
+                    fail(t);
+                }
+                finally
+                {
+                    permits.release();
+                }
+            }
+        }
+        
+        private class DocumentTask implements Runnable
+        {
+            private final long seed;
+            
+            DocumentTask(long seed)
+            {
+                this.seed = seed;
+            }
+
+            public void run()
+            {
+                byte[] content;
+                try
+                {
+                    if(failure.get() != null)
+                    {
+                        permits.release();
+                        return;
+                    }
+                    long documentLength = length.getLength(seed);
+                    if(documentLength > Integer.MAX_VALUE - 8)
+                    {
+                        throw new IllegalArgumentException("Document " + seed + " is too long to hold in memory: " + documentLength);
+                    }
+                    content = new byte[(int)documentLength];
+                    RandomTextInputStream stream = new RandomTextInputStream(wg, sampler, seed, documentLength, strings);
+                    int count = 0;
+                    int read;
+                    while((count < content.length) && ((read = stream.read(content, count, content.length - count)) > 0))
+                    {
+                        count += read;
+                    }
+                }
+                catch(Throwable t)
+                {
+                    fail(t);
+                    permits.release();
+                    return;
+                }
+                deliver(seed, content);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A compact binary form of a lexicon that loads without any parsing.
+ * <p>
+ * The layout is big-endian: the magic number, the format version and the word count, then the frequency of every
+ * word as a long, the UTF-8 length of every word as an int and finally all the UTF-8 word bytes end to end. Words are
+ * in the order they were added so the loaded word table is identical to the one that was written.
+ * <p>
+ * Compile a tab separated lexicon with:
+ * <pre>
+ * java org.alfresco.textgen.BinaryLexicon lexicon-stem-en.txt lexicon-stem-en.bin
+ * </pre>
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class BinaryLexicon
+{
+    /**
+     * "ATGL"
+     */
+    public static final int MAGIC = 0x4154474C;
+    
+    public static final int VERSION = 1;
+    
+    private static final int HEADER_SIZE = 12;
+    
+    /**
+     * Compile a tab separated lexicon file into the binary form.
+     * 
+     * @param args - the lexicon file and the binary file to write
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length != 2)
+        {
+            throw new IllegalArgumentException("Usage: BinaryLexicon <lexicon.txt> <lexicon.bin>");
+        }
+        compile(Paths.get(args[0]), Paths.get(args[1]));
+    }
+    
+    /**
+     * Compile a tab separated lexicon file into the binary form.
+     */
+    public static void compile(Path lexicon, Path binary) throws IOException
+    {
+        WordGenerator wordGenerator = new FileLexiconLoader(lexicon).load();
+        
+        if(binary.getParent() != null)
+        {
+            binary.getParent().toFile().mkdirs();
+        }
+        OutputStream os = new FileOutputStream(binary.toFile());
+        try
+        {
+            write(wordGenerator, os);
+        }
+        finally
+        {
+            os.close();
+        }
+    }
+    
+    /**
+     * Write the words of a word generator in binary form. The stream is not closed.
+     */
+    public static void write(WordGenerator wordGenerator, OutputStream os) throws IOException
+    {
+        int count = wordGenerator.getWordCount();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(count);
+        for(int i = 0; i < count; i++)
+        {
+            out.writeLong(wordGenerator.getFrequencyAt(i));
+        }
+        for(int i = 0; i < count; i++)
+        {
+            out.writeInt(wordGenerator.getWordLength(i));
+        }
+        // The words are already end to end
+        out.write(wordGenerator.getArena(), 0, count == 0 ? 0 : wordGenerator.getWordOffset(count - 1) + wordGenerator.getWordLength(count - 1));
+        out.flush();
+    }
+    
+    /**
+     * Check if a stream starts with a binary lexicon. The stream must support mark and is reset to where it started.
+     */
+    public static boolean isBinaryLexicon(InputStream is) throws IOException
+    {
+        is.mark(4);
+        try
+        {
+            int magic = 0;
+            for(int i = 0; i < 4; i++)
+            {
+                int b = is.read();
+                if(b == -1)
+                {
+                    return false;
+                }
+                magic = (magic << 8) | b;
+            }
+            return magic == MAGIC;
+        }
+        finally
+        {
+            is.reset();
+        }
+    }
+    
+    /**
+     * Read a binary lexicon from a stream. The stream is not closed.
+     */
+    public static WordGenerator read(InputStream is) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while((read = is.read(buffer)) != -1)
+        {
+            bytes.write(buffer, 0, read);
+        }
+        return read(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+    
+    /**
+     * Read a binary lexicon by memory mapping the file.
+     */
+    public static WordGenerator map(Path binary) throws IOException
+    {
+        FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ);
+        try
+        {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Read a binary lexicon from the remaining content of a buffer.
+     */
+    public static WordGenerator read(ByteBuffer content) throws IOException
+    {
+        ByteBuffer buffer = content.slice().order(ByteOrder.BIG_ENDIAN);
+        if(buffer.remaining() < HEADER_SIZE)
+        {
+            throw new IOException("Binary lexicon is truncated");
+        }
+        if(buffer.getInt() != MAGIC)
+        {
+            throw new IOException("Not a binary lexicon");
+        }
+        int version = buffer.getInt();
+        if(version != VERSION)
+        {
+            throw new IOException("Unsupported binary lexicon version " + version);
+        }
+        int count = buffer.getInt();
+        if((count < 0) || ((long)count * 12 > buffer.remaining()))
+        {
+            throw new IOException("Binary lexicon is truncated");
+        }
+        
+        long[] frequencies = new long[count];
+        buffer.asLongBuffer().get(frequencies);
+        buffer.position(buffer.position() + count * 8);
+        int[] lengths = new int[count];
+        buffer.asIntBuffer().get(lengths);
+        buffer.position(buffer.position() + count * 4);
+        
+        long total = 0;
+        for(int length : lengths)
+        {
+            if(length < 0)
+            {
+                throw new IOException("Binary lexicon has a negative word length");
+            }
+            total += length;
+        }
+        if(total > buffer.remaining())
+        {
+            throw new IOException("Binary lexicon is truncated");
+        }
+        byte[] words = new byte[(int)total];
+        buffer.get(words);
+        return new WordGenerator.Builder(count).addWords(words, lengths, frequencies).build();
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A stream of random words, with the same content as {@link RandomTextInputStream}, that is read through a
+ * {@link ChunkCache}. Chunks that are cached are copied from the cache and only those that are not are generated and
+ * added to it.
+ * <p>
+ * Any position can be reached with {@link #seek(long)} or {@link #skip(long)} without reading the bytes before it.
+ * Generating a chunk that is not cached still needs the words before it, so the stream keeps its generator where it
+ * stopped and only starts again from the beginning of the document to go backwards.
+ * <p>
+ * A stream is not thread safe, but any number of streams can share a cache.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class CachedRandomTextInputStream extends InputStream
+{
+    private final WordGenerator wg;
+    private final SamplerVersion samplerVersion;
+    private final ChunkCache cache;
+    private final long seed;
+    private final long length;
+    private final String[] strings;
+    private final int chunkSize;
+    
+    private final RandomTextInputStream generator;
+    private long generatorPosition = 0;
+    
+    private long position = 0;
+    private ByteBuffer chunk;
+    private long chunkIndex = -1;
+    
+    CachedRandomTextInputStream(WordGenerator wg, SamplerVersion samplerVersion, ChunkCache cache, long seed, long length, String[] strings) throws IOException
+    {
+        this.wg = wg;
+        this.samplerVersion = samplerVersion;
+        this.cache = cache;
+        this.seed = seed;
+        this.length = length;
+        this.strings = strings == null ? null : strings.clone();
+        this.chunkSize = cache.getChunkSize();
+        // Checks the fixed strings fit
+        generator = new RandomTextInputStream(wg, samplerVersion.getSampler(wg), seed, length, this.strings);
+    }
+    
+    public long getLength()
+    {
+        return length;
+    }
+    
+    public long getPosition()
+    {
+        return position;
+    }
+    
+    /**
+     * Move to a position in the document, which may be before the current position. Nothing is generated until the
+     * next read.
+     */
+    public void seek(long position)
+    {
+        if((position < 0) || (position > length))
+        {
+            throw new IllegalArgumentException("Position " + position + " is not within the length " + length);
+        }
+        this.position = position;
+    }
+    
+    @Override
+    public int read() throws IOException
+    {
+        if(position >= length)
+        {
+            return -1;
+        }
+        ByteBuffer current = getChunk();
+        return current.get((int)(position++ - chunkIndex * chunkSize)) & 0xFF;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if((off < 0) || (len < 0) || (len > b.length - off))
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if(len == 0)
+        {
+            return 0;
+        }
+        if(position >= length)
+        {
+            return -1;
+        }
+        
+        int count = 0;
+        while((count < len) && (position < length))
+        {
+            ByteBuffer current = getChunk();
+            current.position((int)(position - chunkIndex * chunkSize));
+            int copy = Math.min(len - count, current.remaining());
+            current.get(b, off + count, copy);
+            count += copy;
+            position += copy;
+        }
+        return count;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException
+    {
+        if(n <= 0)
+        {
+            return 0;
+        }
+        long skipped = Math.min(n, length - position);
+        position += skipped;
+        return skipped;
+    }
+    
+    @Override
+    public int available() throws IOException
+    {
+        return (int)Math.min(Integer.MAX_VALUE, length - position);
+    }
+    
+    /**
+     * @return the chunk holding the current position, from the cache or generated
+     */
+    private ByteBuffer getChunk() throws IOException
+    {
+        long index = position / chunkSize;
+        if(index == chunkIndex)
+        {
+            return chunk;
+        }
+        ChunkCache.Key key = new ChunkCache.Key(wg, samplerVersion, seed, length, strings, index);
+        ByteBuffer cached = cache.get(key);
+        if(cached == null)
+        {
+            cached = generate(index);
+            cache.put(key, cached);
+            cached = cached.duplicate();
+        }
+        chunk = cached;
+        chunkIndex = index;
+        return chunk;
+    }
+    
+    private ByteBuffer generate(long index) throws IOException
+    {
+        long start = index * chunkSize;
+        if(start < generatorPosition)
+        {
+            generator.reset(seed, length, strings);
+            generatorPosition = 0;
+        }
+        while(generatorPosition < start)
+        {
+            long skipped = generator.skip(start - generatorPosition);
+            if(skipped <= 0)
+            {
+                throw new IOException("Generated content ended at " + generatorPosition + " before " + length);
+            }
+            generatorPosition += skipped;
+        }
+        ByteBuffer generated = ByteBuffer.allocateDirect((int)Math.min(chunkSize, length - start));
+        while(generated.hasRemaining())
+        {
+            int read = generator.read(generated);
+            if(read == -1)
+            {
+                throw new IOException("Generated content ended at " + generatorPosition + " before " + length);
+            }
+            generatorPosition += read;
+        }
+        generated.flip();
+        return generated;
+    }
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32C;
+
+/**
+ * Work out the checksums of generated documents from their seeds, to verify stored content without keeping a copy
+ * of it. The bytes are generated into a buffer and checksummed, but the document as a whole is never held anywhere.
+ * <p>
+ * The CRC-32C of one large document can also be found in parallel. The random words are split into segments of a
+ * fixed number of words; each task jumps straight to the start of its segment and checksums it as if it were all
+ * in the document, and the segment checksums are combined in order until the segment that holds the end of the
+ * document, which is checksummed again knowing where it starts. Only as many segments are generated as the rest of
+ * the document is expected to need, and a document, or a remainder, shorter than a segment is checksummed in the
+ * calling thread.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class ChecksumCalculator
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * The words checksummed by one parallel task
+     */
+    private static final int WORDS_PER_SEGMENT = 64 * 1024;
+    
+    /**
+     * The documents checksummed by one task in a batch before it stops splitting
+     */
+    private static final long DOCUMENTS_PER_TASK = 64;
+    
+    /**
+     * The CRC-32C polynomial, reversed
+     */
+    private static final int CRC32C_POLYNOMIAL = 0x82F63B78;
+    
+    private static final byte SPACE = ' ';
+    
+    private final WordGenerator wg;
+    
+    private final WordSampler sampler;
+    
+    /**
+     * The expected bytes in a segment, worked out when first needed
+     */
+    private volatile long segmentBytes;
+    
+    public ChecksumCalculator(WordGenerator wg, WordSampler sampler)
+    {
+        this.wg = wg;
+        this.sampler = sampler;
+    }
+    
+    /**
+     * Work out the length, CRC-32C and SHA-256 of a document in a single pass.
+     */
+    public DocumentChecksum checksum(long seed, long length, String... strings) throws IOException
+    {
+        return checksum(new RandomTextInputStream(wg, sampler, seed, length, strings), new CRC32C(), newSha256(), new byte[BUFFER_SIZE]);
+    }
+    
+    /**
+     * Work out the checksums of every document in a range of seeds, in parallel. The sink is called concurrently
+     * and in no particular order.
+     * 
+     * @param fromSeed - the first seed, inclusive
+     * @param toSeed - the last seed, exclusive
+     * @param length - the length of the document for each seed
+     */
+    public void checksum(long fromSeed, long toSeed, DocumentLength length, Sink sink, ForkJoinPool pool, String... strings) throws IOException
+    {
+        try
+        {
+            pool.invoke(new BatchTask(fromSeed, toSeed, length, sink, strings));
+        }
+        catch(RuntimeException e)
+        {
+            ParallelTextGenerator.rethrowIOException(e);
+        }
+    }
+    
+    /**
+     * Work out the CRC-32C of one document, splitting the work across a pool.
+     */
+    public long crc32c(long seed, long length, ForkJoinPool pool, String... strings)
+    {
+        Random random = new Random();
+        String fixedStrings = RandomTextInputStream.joinFixedStrings(strings, RandomTextInputStream.selectFixedStrings(random, seed, strings));
+        
+        CRC32C crc = new CRC32C();
+        long offset = 0;
+        boolean leadingSpace = false;
+        if(fixedStrings != null)
+        {
+            byte[] fixed = fixedStrings.getBytes(StandardCharsets.UTF_8);
+            if(fixed.length > length)
+            {
+                throw new IllegalStateException("Length "+length+ " is too short for required strings: "+ fixedStrings);
+            }
+            crc.update(fixed, 0, fixed.length);
+            offset = fixed.length;
+            leadingSpace = true;
+        }
+        long checksum = crc.getValue();
+        
+        long segmentBytes = getSegmentBytes();
+        int maxBatch = Math.max(pool.getParallelism() * 2, 1);
+        long segment = 0;
+        while(true)
+        {
+            long remaining = length - offset;
+            if(remaining < segmentBytes)
+            {
+                // Less than a segment is left, so finish in this thread rather than generate whole segments
+                if(segment == 0)
+                {
+                    checksumEnd(crc, seed, 0, leadingSpace, offset, length);
+                    return crc.getValue();
+                }
+                CRC32C end = new CRC32C();
+                checksumEnd(end, seed, segment, leadingSpace, offset, length);
+                return combine(checksum, end.getValue(), remaining);
+            }
+            
+            // Only as many segments as the rest of the document is expected to fill
+            int batch = (int)Math.min(remaining / segmentBytes, maxBatch);
+            List<SegmentTask> tasks = new ArrayList<SegmentTask>(batch);
+            for(int i = 0; i < batch; i++)
+            {
+                tasks.add(new SegmentTask(seed, segment + i, leadingSpace));
+            }
+            pool.invoke(new InvokeAll(tasks));
+            
+            for(SegmentTask task : tasks)
+            {
+                Segment result = task.join();
+                if(offset + result.length > length)
+                {
+                    // The document ends in this segment
+                    CRC32C end = new CRC32C();
+                    checksumEnd(end, seed, task.index, leadingSpace, offset, length);
+                    return combine(checksum, end.getValue(), length - offset);
+                }
+                checksum = combine(checksum, result.crc, result.length);
+                offset += result.length;
+            }
+            segment += batch;
+        }
+    }
+    
+    /**
+     * The expected length of a segment in bytes, from the mean length of a word and its space weighted by frequency
+     */
+    private long getSegmentBytes()
+    {
+        long bytes = segmentBytes;
+        if(bytes == 0)
+        {
+            double total = 0;
+            double weightedLength = 0;
+            for(int i = 0; i < wg.getWordCount(); i++)
+            {
+                long frequency = wg.getFrequencyAt(i);
+                total += frequency;
+                weightedLength += (double)frequency * (wg.getWordLength(i) + 1);
+            }
+            bytes = Math.max((long)(WORDS_PER_SEGMENT * (total > 0 ? weightedLength / total : 1)), 1);
+            segmentBytes = bytes;
+        }
+        return bytes;
+    }
+    
+    /**
+     * Receives the checksums of documents.
+     */
+    public interface Sink
+    {
+        void accept(long seed, DocumentChecksum checksum);
+    }
+    
+    private static MessageDigest newSha256()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private static DocumentChecksum checksum(RandomTextInputStream stream, CRC32C crc, MessageDigest digest, byte[] buffer) throws IOException
+    {
+        crc.reset();
+        digest.reset();
+        long length = 0;
+        int count;
+        while((count = stream.read(buffer, 0, buffer.length)) != -1)
+        {
+            crc.update(buffer, 0, count);
+            digest.update(buffer, 0, count);
+            length += count;
+        }
+        return new DocumentChecksum(length, crc.getValue(), digest.digest());
+    }
+    
+    /**
+     * Checksum the words from the start of the segment that holds the end of the document, then the padding.
+     */
+    private void checksumEnd(CRC32C crc, long seed, long index, boolean leadingSpace, long offset, long length)
+    {
+        Random random = new Random();
+        RandomJump.seekDoubles(random, seed, index * WORDS_PER_SEGMENT);
+        // No more than the rest of the document is ever buffered
+        byte[] buffer = new byte[(int)Math.min(BUFFER_SIZE, Math.max(length - offset, 1))];
+        int used = 0;
+        long bytes = 0;
+        boolean pad = leadingSpace || (index > 0);
+        while(true)
+        {
+            int word = sampler.getWordIndex(random.nextDouble());
+            int wordByteCount = pad ? wg.getWordLength(word) + 1 : wg.getWordLength(word);
+            if(offset + bytes + wordByteCount > length)
+            {
+                break;
+            }
+            if(used + wordByteCount > buffer.length)
+            {
+                crc.update(buffer, 0, used);
+                used = 0;
+            }
+            used = append(buffer, used, word, pad);
+            bytes += wordByteCount;
+            pad = true;
+        }
+        crc.update(buffer, 0, used);
+        
+        long padding = length - offset - bytes;
+        Arrays.fill(buffer, 0, (int)Math.min(padding, buffer.length), SPACE);
+        for(; padding > 0; padding -= buffer.length)
+        {
+            crc.update(buffer, 0, (int)Math.min(padding, buffer.length));
+        }
+    }
+    
+    /**
+     * Copy a word, and the space before it if required, into a buffer that has room for them.
+     * 
+     * @return the position after the word
+     */
+    private int append(byte[] buffer, int used, int word, boolean pad)
+    {
+        if(pad)
+        {
+            buffer[used++] = SPACE;
+        }
+        if(wg.getWordLength(word) > buffer.length - used)
+        {
+            throw new IllegalStateException("Word is longer than the checksum buffer");
+        }
+        return used + wg.copyWord(word, buffer, used);
+    }
+    
+    /**
+     * Combine the CRC-32C of two blocks of bytes into the CRC-32C of the two blocks one after the other, in time
+     * proportional to the log of the length of the second block. This is the zlib method, with the CRC-32C polynomial.
+     * 
+     * @param first - the CRC of the first block
+     * @param second - the CRC of the second block
+     * @param secondLength - the length of the second block
+     */
+    static long combine(long first, long second, long secondLength)
+    {
+        if(secondLength <= 0)
+        {
+            return first;
+        }
+        
+        int[] even = new int[32];
+        int[] odd = new int[32];
+        
+        // The operator for one zero bit
+        odd[0] = CRC32C_POLYNOMIAL;
+        int row = 1;
+        for(int n = 1; n < 32; n++)
+        {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // Two zero bits, then four
+        square(even, odd);
+        square(odd, even);
+        
+        // Apply the operator for each set bit of the length in bytes, squaring as we go
+        int crc = (int)first;
+        do
+        {
+            square(even, odd);
+            if((secondLength & 1) != 0)
+            {
+                crc = times(even, crc);
+            }
+            secondLength >>>= 1;
+            if(secondLength == 0)
+            {
+                break;
+            }
+            square(odd, even);
+            if((secondLength & 1) != 0)
+            {
+                crc = times(odd, crc);
+            }
+            secondLength >>>= 1;
+        }
+        while(secondLength != 0);
+        
+        return (crc ^ (int)second) & 0xFFFFFFFFL;
+    }
+    
+    private static int times(int[] matrix, int vector)
+    {
+        int sum = 0;
+        for(int i = 0; vector != 0; i++, vector >>>= 1)
+        {
+            if((vector & 1) != 0)
+            {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+    
+    private static void square(int[] square, int[] matrix)
+    {
+        for(int n = 0; n < 32; n++)
+        {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+    
+    private static class Segment
+    {
+        final long crc;
+        
+        final long length;
+        
+        Segment(long crc, long length)
+        {
+            this.crc = crc;
+            this.length = length;
+        }
+    }
+    
+    /**
+     * Checksum one segment of words, as if the document were long enough to hold all of them
+     */
+    private class SegmentTask extends RecursiveTask<Segment>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final long seed;
+        private final long index;
+        private final boolean leadingSpace;
+        
+        SegmentTask(long seed, long index, boolean leadingSpace)
+        {
+            this.seed = seed;
+            this.index = index;
+            this.leadingSpace = leadingSpace;
+        }
+
+        @Override
+        protected Segment compute()
+        {
+            Random random = new Random();
+            RandomJump.seekDoubles(random, seed, index * WORDS_PER_SEGMENT);
+            CRC32C crc = new CRC32C();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int used = 0;
+            long length = 0;
+            boolean pad = leadingSpace || (index > 0);
+            for(int i = 0; i < WORDS_PER_SEGMENT; i++)
+            {
+                int word = sampler.getWordIndex(random.nextDouble());
+                if(used + wg.getWordLength(word) + 1 > buffer.length)
+                {
+                    crc.update(buffer, 0, used);
+                    used = 0;
+                }
+                used = append(buffer, used, word, pad);
+                length += pad ? wg.getWordLength(word) + 1 : wg.getWordLength(word);
+                pad = true;
+            }
+            crc.update(buffer, 0, used);
+            return new Segment(crc.getValue(), length);
+        }
+    }
+    
+    private static class InvokeAll extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<SegmentTask> tasks;
+        
+        InvokeAll(List<SegmentTask> tasks)
+        {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute()
+        {
+            ForkJoinTask.invokeAll(tasks);
+        }
+    }
+    
+    private class BatchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final long from;
+        private final long to;
+        private final DocumentLength length;
+        private final Sink sink;
+        private final String[] strings;
+        
+        BatchTask(long from, long to, DocumentLength length, Sink sink, String[] strings)
+        {
+            this.from = from;
+            this.to = to;
+            this.length = length;
+            this.sink = sink;
+            this.strings = strings;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from > DOCUMENTS_PER_TASK)
+            {
+                long middle = (from + to) >>> 1;
+                invokeAll(new BatchTask(from, middle, length, sink, strings), new BatchTask(middle, to, length, sink, strings));
+                return;
+            }
+            
+            try
+            {
+                RandomTextInputStream stream = null;
+                CRC32C crc = new CRC32C();
+                MessageDigest digest = newSha256();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                for(long seed = from; seed < to; seed++)
+                {
+                    if(stream == null)
+                    {
+                        stream = new RandomTextInputStream(wg, sampler, seed, length.getLength(seed), strings);
+                    }
+                    else
+                    {
+                        stream.reset(seed, length.getLength(seed), strings);
+                    }
+                    sink.accept(seed, checksum(stream, crc, digest, buffer));
+                }
+            }
+            catch(IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
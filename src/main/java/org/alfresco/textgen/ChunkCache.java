@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of generated content, held off heap in direct buffers, so documents that are read again are copied
+ * from memory rather than generated again.
+ * <p>
+ * Documents are cached in chunks of a fixed size, keyed by the lexicon, sampler version, seed, length, fixed strings
+ * and chunk index, so a range read only needs the chunks it covers. When the cached chunks use more than the byte
+ * budget, those used least recently are dropped until they fit again. A chunk larger than the whole budget is never
+ * cached.
+ * <p>
+ * A cache is thread safe and can be shared by any number of streams and generators.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ * @see TextGenerator#getCachedInputStream(ChunkCache, long, long, String...)
+ */
+public class ChunkCache
+{
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    
+    private final long byteBudget;
+    
+    private final int chunkSize;
+    
+    /**
+     * In access order, so the least recently used come first; guarded by this
+     */
+    private final LinkedHashMap<Key, ByteBuffer> chunks = new LinkedHashMap<Key, ByteBuffer>(16, 0.75f, true);
+    
+    private long memoryUsage = 0;
+    
+    private long hitCount = 0;
+    
+    private long missCount = 0;
+    
+    private long evictionCount = 0;
+    
+    /**
+     * @param byteBudget - the most bytes of content to hold
+     */
+    public ChunkCache(long byteBudget)
+    {
+        this(byteBudget, DEFAULT_CHUNK_SIZE);
+    }
+    
+    /**
+     * @param byteBudget - the most bytes of content to hold
+     * @param chunkSize - the size of each cached chunk; only the last chunk of a document can be shorter
+     */
+    public ChunkCache(long byteBudget, int chunkSize)
+    {
+        if(byteBudget < 0)
+        {
+            throw new IllegalArgumentException("Byte budget can not be negative: " + byteBudget);
+        }
+        if(chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.byteBudget = byteBudget;
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * @return the cached chunk, as a buffer of its own positioned at the start, or null if it is not cached
+     */
+    synchronized ByteBuffer get(Key key)
+    {
+        ByteBuffer chunk = chunks.get(key);
+        if(chunk == null)
+        {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return chunk.duplicate();
+    }
+    
+    /**
+     * Add a chunk, dropping the least recently used until the cache fits its budget. The chunk must not be changed
+     * afterwards.
+     */
+    synchronized void put(Key key, ByteBuffer chunk)
+    {
+        int size = chunk.capacity();
+        if(size > byteBudget)
+        {
+            return;
+        }
+        ByteBuffer previous = chunks.put(key, chunk);
+        if(previous != null)
+        {
+            memoryUsage -= previous.capacity();
+        }
+        memoryUsage += size;
+        Iterator<Map.Entry<Key, ByteBuffer>> iterator = chunks.entrySet().iterator();
+        while((memoryUsage > byteBudget) && iterator.hasNext())
+        {
+            Map.Entry<Key, ByteBuffer> eldest = iterator.next();
+            if(eldest.getKey().equals(key))
+            {
+                continue;
+            }
+            memoryUsage -= eldest.getValue().capacity();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+    
+    /**
+     * Drop every cached chunk. The counters are kept.
+     */
+    public synchronized void clear()
+    {
+        chunks.clear();
+        memoryUsage = 0;
+    }
+    
+    public long getByteBudget()
+    {
+        return byteBudget;
+    }
+    
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+    
+    /**
+     * @return the bytes of content cached
+     */
+    public synchronized long getMemoryUsage()
+    {
+        return memoryUsage;
+    }
+    
+    /**
+     * @return the number of chunks cached
+     */
+    public synchronized int getChunkCount()
+    {
+        return chunks.size();
+    }
+    
+    /**
+     * @return the number of chunks found in the cache
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+    
+    /**
+     * @return the number of chunks that were not cached and had to be generated
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+    
+    /**
+     * @return the number of chunks dropped to stay within the budget
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+    
+    /**
+     * Identifies a chunk of one document. The lexicon is identified by the id of its word generator rather than a
+     * reference, so cached chunks do not keep a lexicon in memory once a {@link LexiconRegistry} or
+     * {@link LexiconCache} has dropped it; its chunks are simply never hit again and age out. The same words loaded
+     * twice are cached separately.
+     */
+    static final class Key
+    {
+        private final long lexiconId;
+        
+        private final SamplerVersion samplerVersion;
+        
+        private final long seed;
+        
+        private final long length;
+        
+        private final String[] strings;
+        
+        private final long chunkIndex;
+        
+        private final int hashCode;
+        
+        /**
+         * @param strings - not copied, so must not be changed
+         */
+        Key(WordGenerator wg, SamplerVersion samplerVersion, long seed, long length, String[] strings, long chunkIndex)
+        {
+            this.lexiconId = wg.getId();
+            this.samplerVersion = samplerVersion;
+            this.seed = seed;
+            this.length = length;
+            this.strings = strings;
+            this.chunkIndex = chunkIndex;
+            int hash = Long.hashCode(lexiconId);
+            hash = 31 * hash + samplerVersion.hashCode();
+            hash = 31 * hash + Long.hashCode(seed);
+            hash = 31 * hash + Long.hashCode(length);
+            hash = 31 * hash + Arrays.hashCode(strings);
+            hash = 31 * hash + Long.hashCode(chunkIndex);
+            hashCode = hash;
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+        
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(this == obj)
+            {
+                return true;
+            }
+            if(!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key)obj;
+            return (lexiconId == other.lexiconId) && (samplerVersion == other.samplerVersion) && (seed == other.seed)
+                    && (length == other.length) && (chunkIndex == other.chunkIndex) && Arrays.equals(strings, other.strings);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * A stream of random words made up of fixed size chunks. Each chunk is generated independently from a seed derived
+ * from the document seed and the chunk index, so any position in the document can be reached by generating only
+ * the chunk that contains it.
+ * <p>
+ * The first chunk uses the document seed and carries any fixed strings, so a document no longer than one chunk is
+ * the same as the one from {@link RandomTextInputStream}. Each chunk is padded with spaces to fill it and later
+ * chunks start with a space so words never run together across a chunk boundary.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class ChunkedRandomTextInputStream extends InputStream
+{
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    
+    private WordGenerator wg;
+    private WordSampler sampler;
+    private long seed;
+    private long length;
+    private int chunkSize;
+    private String[] strings;
+    
+    private long position = 0;
+    private RandomTextInputStream chunk;
+    private long chunkIndex;
+    private long chunkPosition;
+    
+    public ChunkedRandomTextInputStream(WordGenerator wg, WordSampler sampler, long seed, long length, int chunkSize, String[] strings) throws IOException
+    {
+        if(chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.wg = wg;
+        this.sampler = sampler;
+        this.seed = seed;
+        this.length = length;
+        this.chunkSize = chunkSize;
+        this.strings = strings;
+        
+        checkFixedStrings(seed, length, chunkSize, strings);
+        chunk = openChunk(0);
+        chunkIndex = 0;
+        chunkPosition = 0;
+    }
+    
+    /**
+     * Get the seed used to generate a chunk of a document
+     */
+    public static long getChunkSeed(long seed, long chunkIndex)
+    {
+        if(chunkIndex == 0)
+        {
+            return seed;
+        }
+        return SeedMixer.mix(seed, chunkIndex);
+    }
+    
+    public long getLength()
+    {
+        return length;
+    }
+    
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+    
+    public long getChunkCount()
+    {
+        return (length + chunkSize - 1) / chunkSize;
+    }
+    
+    /**
+     * @return the current position in the document
+     */
+    public long getPosition()
+    {
+        return position;
+    }
+    
+    /**
+     * Move to any position in the document - nothing is generated until the next read.
+     */
+    public void seek(long position)
+    {
+        if((position < 0) || (position > length))
+        {
+            throw new IllegalArgumentException("Position " + position + " is outside the document length " + length);
+        }
+        this.position = position;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if(position >= length)
+        {
+            return -1;
+        }
+        int b = positionChunk().read();
+        position++;
+        chunkPosition++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if((off < 0) || (len < 0) || (len > b.length - off))
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if(len == 0)
+        {
+            return 0;
+        }
+        if(position >= length)
+        {
+            return -1;
+        }
+        
+        int count = 0;
+        while((count < len) && (position < length))
+        {
+            RandomTextInputStream current = positionChunk();
+            int toRead = (int)Math.min(len - count, getChunkEnd(chunkIndex) - position);
+            int read = current.read(b, off + count, toRead);
+            position += read;
+            chunkPosition += read;
+            count += read;
+        }
+        return count;
+    }
+
+    /**
+     * Read from a given position in the document without changing the position of this stream.
+     * 
+     * @return the number of bytes read or -1 if the position is at or beyond the end of the document
+     */
+    public int read(long position, byte[] b, int off, int len) throws IOException
+    {
+        if((off < 0) || (len < 0) || (len > b.length - off))
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if(position < 0)
+        {
+            throw new IllegalArgumentException("Negative position " + position);
+        }
+        if(position >= length)
+        {
+            return -1;
+        }
+        
+        int count = 0;
+        long current = position;
+        while((count < len) && (current < length))
+        {
+            long index = current / chunkSize;
+            RandomTextInputStream stream = openChunk(index);
+            skipFully(stream, current - index * chunkSize);
+            int toRead = (int)Math.min(len - count, getChunkEnd(index) - current);
+            int read = stream.read(b, off + count, toRead);
+            current += read;
+            count += read;
+        }
+        return count;
+    }
+
+    /**
+     * Skipping only moves the position - the cost is paid by the next read and is at most one chunk.
+     */
+    @Override
+    public long skip(long n) throws IOException
+    {
+        if(n <= 0)
+        {
+            return 0;
+        }
+        long target = Math.min(length, position + n);
+        long skipped = target - position;
+        position = target;
+        return skipped;
+    }
+    
+    private RandomTextInputStream positionChunk() throws IOException
+    {
+        long index = position / chunkSize;
+        if((chunk == null) || (index != chunkIndex) || (chunkPosition > position))
+        {
+            chunk = openChunk(index);
+            chunkIndex = index;
+            chunkPosition = index * chunkSize;
+        }
+        if(chunkPosition < position)
+        {
+            skipFully(chunk, position - chunkPosition);
+            chunkPosition = position;
+        }
+        return chunk;
+    }
+    
+    private long getChunkEnd(long index)
+    {
+        return Math.min(length, (index + 1) * chunkSize);
+    }
+    
+    private RandomTextInputStream openChunk(long index) throws IOException
+    {
+        return openChunk(wg, sampler, seed, length, chunkSize, strings, index);
+    }
+    
+    /**
+     * Check the fixed strings for a seed fit in both the document and its first chunk, which holds them.
+     * 
+     * @throws IllegalStateException if the document is too short
+     * @throws IllegalArgumentException if the chunk size is too small
+     */
+    static void checkFixedStrings(long seed, long length, int chunkSize, String[] strings)
+    {
+        String fixedStrings = RandomTextInputStream.joinFixedStrings(strings, RandomTextInputStream.selectFixedStrings(new Random(), seed, strings));
+        if(fixedStrings == null)
+        {
+            return;
+        }
+        int fixedLength = fixedStrings.getBytes(StandardCharsets.UTF_8).length;
+        if(fixedLength > length)
+        {
+            throw new IllegalStateException("Length "+length+ " is too short for required strings: "+ fixedStrings);
+        }
+        if(fixedLength > chunkSize)
+        {
+            throw new IllegalArgumentException("Chunk size " + chunkSize + " is too small for required strings: " + fixedStrings);
+        }
+    }
+    
+    /**
+     * Open the stream for a single chunk of a document
+     */
+    static RandomTextInputStream openChunk(WordGenerator wg, WordSampler sampler, long seed, long length, int chunkSize, String[] strings, long index) throws IOException
+    {
+        long start = index * chunkSize;
+        long chunkLength = Math.min(length, start + chunkSize) - start;
+        if(index == 0)
+        {
+            return new RandomTextInputStream(wg, sampler, seed, chunkLength, strings, false);
+        }
+        else
+        {
+            return new RandomTextInputStream(wg, sampler, getChunkSeed(seed, index), chunkLength, null, true);
+        }
+    }
+    
+    private void skipFully(RandomTextInputStream stream, long n) throws IOException
+    {
+        if(stream.skip(n) != n)
+        {
+            throw new IOException("Failed to skip " + n + " bytes in chunk");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Load a lexicon from the class path, without any dependency on a framework.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class ClassPathLexiconLoader implements LexiconLoader
+{
+    private final String path;
+    
+    private final ClassLoader classLoader;
+    
+    /**
+     * Use the context class loader of the calling thread, or the class loader of this library if there is none.
+     */
+    public ClassPathLexiconLoader(String path)
+    {
+        this(path, null);
+    }
+    
+    public ClassPathLexiconLoader(String path, ClassLoader classLoader)
+    {
+        this.path = path.startsWith("/") ? path.substring(1) : path;
+        this.classLoader = classLoader;
+    }
+    
+    public String getPath()
+    {
+        return path;
+    }
+
+    @Override
+    public WordGenerator load() throws IOException
+    {
+        ClassLoader loader = classLoader;
+        if(loader == null)
+        {
+            loader = Thread.currentThread().getContextClassLoader();
+        }
+        if(loader == null)
+        {
+            loader = ClassPathLexiconLoader.class.getClassLoader();
+        }
+        
+        InputStream is = loader.getResourceAsStream(path);
+        if(is == null)
+        {
+            throw new FileNotFoundException("No resource found: " + path);
+        }
+        try
+        {
+            return LexiconParser.read(ByteBuffer.wrap(is.readAllBytes()));
+        }
+        finally
+        {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Exact counts of the generated documents that match query terms, found without generating any text.
+ * <p>
+ * Documents are generated as word positions, exactly as {@link RandomTextInputStream} would draw them, and matched
+ * against the terms as a whitespace tokenizer would see the text: a term is one or more tokens separated by spaces
+ * and matches a document that contains the same tokens next to each other. Tokens are compared exactly - there is no
+ * case folding or stemming.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class CorpusOracle
+{
+    /**
+     * The documents checked by one task before it stops splitting - a multiple of 64 so tasks never share a word of
+     * the match bitmaps
+     */
+    private static final long SEEDS_PER_TASK = 1024;
+    
+    private static final int NO_TOKEN = -1;
+    
+    private final WordGenerator wg;
+    
+    private final WordSampler sampler;
+    
+    public CorpusOracle(WordGenerator wg, WordSampler sampler)
+    {
+        this.wg = wg;
+        this.sampler = sampler;
+    }
+    
+    /**
+     * Count the documents that match each term for a range of seeds.
+     * 
+     * @param fromSeed - the first seed, inclusive
+     * @param toSeed - the last seed, exclusive; there can be at most {@link Integer#MAX_VALUE} seeds
+     * @param length - the length of the document for each seed
+     * @param terms - the terms or phrases to count
+     * @param pool - where to do the work
+     * @param strings - the fixed strings used to generate the documents, as for
+     *        {@link RandomTextProvider#getInputStream(long, long, String...)}
+     */
+    public Result count(long fromSeed, long toSeed, DocumentLength length, String[] terms, ForkJoinPool pool, String... strings)
+    {
+        if((toSeed < fromSeed) || (toSeed - fromSeed > Integer.MAX_VALUE))
+        {
+            throw new IllegalArgumentException("Invalid seed range " + fromSeed + " to " + toSeed);
+        }
+        Query query = new Query(terms);
+        long[][] bits = new long[terms.length][(int)((toSeed - fromSeed + 63) >>> 6)];
+        Counts counts = pool.invoke(new CountTask(query, fromSeed, 0, toSeed - fromSeed, length, strings, bits));
+        
+        BitSet[] matches = new BitSet[terms.length];
+        for(int i = 0; i < terms.length; i++)
+        {
+            matches[i] = BitSet.valueOf(bits[i]);
+        }
+        return new Result(terms.clone(), fromSeed, counts.documentFrequencies, counts.termFrequencies, matches);
+    }
+    
+    /**
+     * Split text into tokens at spaces
+     */
+    static List<String> tokenize(String text)
+    {
+        List<String> tokens = new ArrayList<String>();
+        int start = 0;
+        for(int i = 0; i <= text.length(); i++)
+        {
+            if((i == text.length()) || (text.charAt(i) == ' '))
+            {
+                if(i > start)
+                {
+                    tokens.add(text.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * The terms compiled against the words in the lexicon
+     */
+    private class Query
+    {
+        final HashMap<String, Integer> tokenIds = new HashMap<String, Integer>();
+        
+        final int[][] termTokens;
+        
+        final int[][] termsEndingWith;
+        
+        final int maxTokens;
+        
+        /**
+         * The query token for each single token word, or NO_TOKEN
+         */
+        final int[] wordToken;
+        
+        /**
+         * The query tokens for each word with more than one token, otherwise null
+         */
+        final int[][] wordTokens;
+        
+        Query(String[] terms)
+        {
+            termTokens = new int[terms.length][];
+            int longest = 1;
+            for(int i = 0; i < terms.length; i++)
+            {
+                List<String> tokens = tokenize(terms[i]);
+                termTokens[i] = new int[tokens.size()];
+                for(int j = 0; j < tokens.size(); j++)
+                {
+                    Integer id = tokenIds.get(tokens.get(j));
+                    if(id == null)
+                    {
+                        id = tokenIds.size();
+                        tokenIds.put(tokens.get(j), id);
+                    }
+                    termTokens[i][j] = id;
+                }
+                longest = Math.max(longest, tokens.size());
+            }
+            maxTokens = longest;
+            
+            int[] endingCounts = new int[tokenIds.size()];
+            for(int[] tokens : termTokens)
+            {
+                if(tokens.length > 0)
+                {
+                    endingCounts[tokens[tokens.length - 1]]++;
+                }
+            }
+            termsEndingWith = new int[tokenIds.size()][];
+            for(int i = 0; i < endingCounts.length; i++)
+            {
+                termsEndingWith[i] = new int[endingCounts[i]];
+                endingCounts[i] = 0;
+            }
+            for(int i = 0; i < termTokens.length; i++)
+            {
+                if(termTokens[i].length > 0)
+                {
+                    int last = termTokens[i][termTokens[i].length - 1];
+                    termsEndingWith[last][endingCounts[last]++] = i;
+                }
+            }
+            
+            wordToken = new int[wg.getWordCount()];
+            wordTokens = new int[wg.getWordCount()][];
+            for(int position = 0; position < wg.getWordCount(); position++)
+            {
+                List<String> tokens = tokenize(wg.getWordAt(position));
+                if(tokens.size() == 1)
+                {
+                    wordToken[position] = getTokenId(tokens.get(0));
+                }
+                else
+                {
+                    wordToken[position] = NO_TOKEN;
+                    wordTokens[position] = new int[tokens.size()];
+                    for(int j = 0; j < tokens.size(); j++)
+                    {
+                        wordTokens[position][j] = getTokenId(tokens.get(j));
+                    }
+                }
+            }
+        }
+        
+        int getTokenId(String token)
+        {
+            Integer id = tokenIds.get(token);
+            return id == null ? NO_TOKEN : id;
+        }
+    }
+    
+    private static class Counts
+    {
+        final long[] documentFrequencies;
+        
+        final long[] termFrequencies;
+        
+        Counts(int terms)
+        {
+            documentFrequencies = new long[terms];
+            termFrequencies = new long[terms];
+        }
+        
+        Counts add(Counts other)
+        {
+            for(int i = 0; i < documentFrequencies.length; i++)
+            {
+                documentFrequencies[i] += other.documentFrequencies[i];
+                termFrequencies[i] += other.termFrequencies[i];
+            }
+            return this;
+        }
+    }
+    
+    private class CountTask extends RecursiveTask<Counts>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final Query query;
+        private final long fromSeed;
+        private final long start;
+        private final long end;
+        private final DocumentLength length;
+        private final String[] strings;
+        private final long[][] bits;
+        
+        // Matching state for a leaf task
+        private int[] history;
+        private long tokenCount;
+        private long[] lastMatch;
+        private Counts counts;
+        
+        CountTask(Query query, long fromSeed, long start, long end, DocumentLength length, String[] strings, long[][] bits)
+        {
+            this.query = query;
+            this.fromSeed = fromSeed;
+            this.start = start;
+            this.end = end;
+            this.length = length;
+            this.strings = strings;
+            this.bits = bits;
+        }
+
+        @Override
+        protected Counts compute()
+        {
+            if(end - start > SEEDS_PER_TASK)
+            {
+                long middle = start + (((end - start) >>> 1) & ~63L);
+                CountTask second = new CountTask(query, fromSeed, middle, end, length, strings, bits);
+                second.fork();
+                Counts first = new CountTask(query, fromSeed, start, middle, length, strings, bits).compute();
+                return first.add(second.join());
+            }
+            
+            counts = new Counts(query.termTokens.length);
+            history = new int[query.maxTokens];
+            lastMatch = new long[query.termTokens.length];
+            Arrays.fill(lastMatch, -1);
+            WordSequence sequence = new WordSequence(wg, sampler);
+            for(long index = start; index < end; index++)
+            {
+                long seed = fromSeed + index;
+                sequence.reset(seed, length.getLength(seed), strings);
+                tokenCount = 0;
+                
+                if(sequence.getFixedStrings() != null)
+                {
+                    for(String token : tokenize(sequence.getFixedStrings()))
+                    {
+                        accept(query.getTokenId(token), index);
+                    }
+                }
+                
+                int position;
+                while((position = sequence.next()) != -1)
+                {
+                    int[] tokens = query.wordTokens[position];
+                    if(tokens == null)
+                    {
+                        accept(query.wordToken[position], index);
+                    }
+                    else
+                    {
+                        for(int token : tokens)
+                        {
+                            accept(token, index);
+                        }
+                    }
+                }
+            }
+            return counts;
+        }
+        
+        private void accept(int token, long index)
+        {
+            history[(int)(tokenCount % history.length)] = token;
+            tokenCount++;
+            if(token == NO_TOKEN)
+            {
+                return;
+            }
+            NEXT : for(int term : query.termsEndingWith[token])
+            {
+                int[] termTokens = query.termTokens[term];
+                if(termTokens.length > tokenCount)
+                {
+                    continue;
+                }
+                for(int k = 1; k < termTokens.length; k++)
+                {
+                    if(history[(int)((tokenCount - 1 - k) % history.length)] != termTokens[termTokens.length - 1 - k])
+                    {
+                        continue NEXT;
+                    }
+                }
+                counts.termFrequencies[term]++;
+                if(lastMatch[term] != index)
+                {
+                    lastMatch[term] = index;
+                    counts.documentFrequencies[term]++;
+                    bits[term][(int)(index >>> 6)] |= 1L << index;
+                }
+            }
+        }
+    }
+    
+    /**
+     * The exact matches of each term in a range of generated documents.
+     */
+    public static class Result
+    {
+        private final String[] terms;
+        
+        private final long fromSeed;
+        
+        private final long[] documentFrequencies;
+        
+        private final long[] termFrequencies;
+        
+        private final BitSet[] matches;
+        
+        Result(String[] terms, long fromSeed, long[] documentFrequencies, long[] termFrequencies, BitSet[] matches)
+        {
+            this.terms = terms;
+            this.fromSeed = fromSeed;
+            this.documentFrequencies = documentFrequencies;
+            this.termFrequencies = termFrequencies;
+            this.matches = matches;
+        }
+        
+        public int getTermCount()
+        {
+            return terms.length;
+        }
+        
+        public String getTerm(int term)
+        {
+            return terms[term];
+        }
+        
+        /**
+         * @return the number of documents that contain the term at least once
+         */
+        public long getDocumentFrequency(int term)
+        {
+            return documentFrequencies[term];
+        }
+        
+        /**
+         * @return the number of times the term occurs across all documents
+         */
+        public long getTermFrequency(int term)
+        {
+            return termFrequencies[term];
+        }
+        
+        /**
+         * @return the documents that contain the term: bit n is set for seed {@code getFromSeed() + n}
+         */
+        public BitSet getMatchingSeeds(int term)
+        {
+            return matches[term];
+        }
+        
+        public boolean matches(int term, long seed)
+        {
+            return matches[term].get((int)(seed - fromSeed));
+        }
+        
+        public long getFromSeed()
+        {
+            return fromSeed;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.util.Arrays;
+
+/**
+ * The length and checksums of a generated document.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class DocumentChecksum
+{
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final long length;
+    
+    private final long crc32c;
+    
+    private final byte[] sha256;
+    
+    DocumentChecksum(long length, long crc32c, byte[] sha256)
+    {
+        this.length = length;
+        this.crc32c = crc32c;
+        this.sha256 = sha256;
+    }
+    
+    public long getLength()
+    {
+        return length;
+    }
+    
+    /**
+     * @return the CRC-32C of the content, as from {@link java.util.zip.CRC32C#getValue()}
+     */
+    public long getCrc32c()
+    {
+        return crc32c;
+    }
+    
+    /**
+     * @return the SHA-256 digest of the content
+     */
+    public byte[] getSha256()
+    {
+        return sha256.clone();
+    }
+    
+    /**
+     * @return the SHA-256 digest of the content in lower case hex
+     */
+    public String getSha256Hex()
+    {
+        char[] hex = new char[sha256.length * 2];
+        for(int i = 0; i < sha256.length; i++)
+        {
+            hex[2 * i] = HEX[(sha256[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[sha256[i] & 0xF];
+        }
+        return new String(hex);
+    }
+    
+    @Override
+    public boolean equals(Object obj)
+    {
+        if(this == obj)
+        {
+            return true;
+        }
+        if(!(obj instanceof DocumentChecksum))
+        {
+            return false;
+        }
+        DocumentChecksum other = (DocumentChecksum)obj;
+        return (length == other.length) && (crc32c == other.crc32c) && Arrays.equals(sha256, other.sha256);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return (int)crc32c;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "DocumentChecksum [length=" + length + ", crc32c=" + Long.toHexString(crc32c) + ", sha256=" + getSha256Hex() + "]";
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Load a lexicon from a file, anywhere on the file system, by reading it into memory in one go.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ * @see MappedLexiconLoader
+ */
+public class FileLexiconLoader implements LexiconLoader
+{
+    private final Path file;
+    
+    public FileLexiconLoader(Path file)
+    {
+        this.file = file;
+    }
+    
+    public Path getFile()
+    {
+        return file;
+    }
+
+    @Override
+    public WordGenerator load() throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try
+        {
+            long size = channel.size();
+            if(size > Integer.MAX_VALUE - 8)
+            {
+                throw new IOException("Lexicon is too large to read into memory: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int)size);
+            while(buffer.hasRemaining() && (channel.read(buffer) != -1))
+            {
+                // keep reading
+            }
+            buffer.flip();
+            return LexiconParser.read(buffer);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analytic estimates of how often terms occur in a generated corpus, worked out from the word distribution rather
+ * than by generating or counting anything.
+ * <p>
+ * Every word in a document is drawn independently, and both samplers select a word with probability equal to its
+ * share of the total frequency. A phrase of k words therefore starts at a given word with the product of the word
+ * probabilities, a document of n words has n - k + 1 places for it to start, and the chance that a document contains
+ * it at least once follows from treating those places as independent. Overlapping repeats of the same phrase and
+ * lexicon entries that contain spaces are ignored, so the estimates are slightly high for very frequent phrases.
+ * <p>
+ * An estimator is immutable and can be shared between threads.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class FrequencyEstimator
+{
+    private final long documentLength;
+    
+    private final long documents;
+    
+    private final double totalFrequency;
+    
+    private final double wordsPerDocument;
+    
+    private final Map<String, Long> wordFrequencies;
+    
+    /**
+     * Single token words ordered by increasing frequency, used to find phrases
+     */
+    private final String[] candidateWords;
+    
+    private final long[] candidateFrequencies;
+    
+    /**
+     * @param documentLength - the length in bytes of each document
+     * @param documents - the number of documents in the corpus
+     */
+    public FrequencyEstimator(WordGenerator wg, long documentLength, long documents)
+    {
+        this.documentLength = documentLength;
+        this.documents = documents;
+        
+        wordFrequencies = new HashMap<String, Long>();
+        long total = 0;
+        double totalBytes = 0;
+        for(int position = 0; position < wg.getWordCount(); position++)
+        {
+            long frequency = wg.getFrequencyAt(position);
+            total += frequency;
+            totalBytes += (double)frequency * wg.getWordLength(position);
+            Long current = wordFrequencies.get(wg.getWordAt(position));
+            wordFrequencies.put(wg.getWordAt(position), current == null ? frequency : current + frequency);
+        }
+        totalFrequency = total;
+        
+        // Each word after the first is preceded by a space
+        double bytesPerWord = total == 0 ? 0 : totalBytes / total;
+        wordsPerDocument = bytesPerWord == 0 ? 0 : (documentLength + 1) / (bytesPerWord + 1);
+        
+        List<Map.Entry<String, Long>> candidates = new ArrayList<Map.Entry<String, Long>>();
+        for(Map.Entry<String, Long> entry : wordFrequencies.entrySet())
+        {
+            if(entry.getKey().indexOf(' ') == -1)
+            {
+                candidates.add(entry);
+            }
+        }
+        Collections.sort(candidates, new Comparator<Map.Entry<String, Long>>()
+        {
+            public int compare(Map.Entry<String, Long> first, Map.Entry<String, Long> second)
+            {
+                int compare = Long.compare(first.getValue(), second.getValue());
+                return compare != 0 ? compare : first.getKey().compareTo(second.getKey());
+            }
+        });
+        candidateWords = new String[candidates.size()];
+        candidateFrequencies = new long[candidates.size()];
+        for(int i = 0; i < candidates.size(); i++)
+        {
+            candidateWords[i] = candidates.get(i).getKey();
+            candidateFrequencies[i] = candidates.get(i).getValue();
+        }
+    }
+    
+    public long getDocumentLength()
+    {
+        return documentLength;
+    }
+    
+    public long getDocuments()
+    {
+        return documents;
+    }
+    
+    /**
+     * @return the expected number of words in each document
+     */
+    public double getWordsPerDocument()
+    {
+        return wordsPerDocument;
+    }
+    
+    /**
+     * @return the probability that any one word in a document is the given word
+     */
+    public double getWordProbability(String word)
+    {
+        Long frequency = wordFrequencies.get(word);
+        return frequency == null ? 0 : frequency / totalFrequency;
+    }
+    
+    /**
+     * @return the probability that a phrase of the given words, in order, starts at any one word in a document
+     */
+    public double getPhraseProbability(String... words)
+    {
+        double probability = 1;
+        for(String word : words)
+        {
+            probability *= getWordProbability(word);
+        }
+        return probability;
+    }
+    
+    /**
+     * @return the expected number of times the phrase occurs across the corpus
+     */
+    public double getTermFrequency(String... words)
+    {
+        return documents * getPlaces(words.length) * getPhraseProbability(words);
+    }
+    
+    /**
+     * @return the expected number of documents that contain the phrase at least once
+     */
+    public double getDocumentFrequency(String... words)
+    {
+        return documents * getSelectivity(getPhraseProbability(words), words.length);
+    }
+    
+    /**
+     * Choose a phrase whose expected fraction of matching documents is as close as the lexicon allows to the given
+     * selectivity. This never fails: if the selectivity can not be reached, the nearest phrase is returned.
+     * 
+     * @param words - the number of words in the phrase
+     * @param selectivity - the required fraction of documents that contain the phrase, between 0 and 1
+     * @return the words separated by single spaces
+     */
+    public String findPhrase(int words, double selectivity)
+    {
+        if(words < 1)
+        {
+            throw new IllegalArgumentException("A phrase needs at least one word");
+        }
+        if(candidateWords.length == 0)
+        {
+            throw new IllegalStateException("There are no words to choose from");
+        }
+        
+        // Invert the selectivity to the probability of the phrase at one place
+        double places = getPlaces(words);
+        double target = places <= 0 ? 0 : -Math.expm1(Math.log1p(-Math.min(selectivity, 1)) / places);
+        
+        StringBuilder phrase = new StringBuilder();
+        for(int remaining = words; remaining > 0; remaining--)
+        {
+            long frequency = Math.round(Math.pow(target, 1d / remaining) * totalFrequency);
+            int index = findNearest(frequency);
+            if(phrase.length() > 0)
+            {
+                phrase.append(' ');
+            }
+            phrase.append(candidateWords[index]);
+            target /= candidateFrequencies[index] / totalFrequency;
+        }
+        return phrase.toString();
+    }
+    
+    /**
+     * @return the index of the candidate word with the frequency nearest to the given frequency by ratio
+     */
+    private int findNearest(long frequency)
+    {
+        int index = Arrays.binarySearch(candidateFrequencies, frequency);
+        if(index >= 0)
+        {
+            return index;
+        }
+        int above = -(index + 1);
+        if(above == 0)
+        {
+            return 0;
+        }
+        if(above == candidateFrequencies.length)
+        {
+            return above - 1;
+        }
+        double lower = (double)candidateFrequencies[above - 1];
+        return (double)frequency * frequency > lower * candidateFrequencies[above] ? above : above - 1;
+    }
+    
+    /**
+     * @return the number of words in a document at which a phrase of the given length can start
+     */
+    private double getPlaces(int words)
+    {
+        return Math.max(wordsPerDocument - words + 1, 0);
+    }
+    
+    private double getSelectivity(double probability, int words)
+    {
+        double places = getPlaces(words);
+        if((places == 0) || (probability == 0))
+        {
+            return 0;
+        }
+        return probability >= 1 ? 1 : -Math.expm1(places * Math.log1p(-probability));
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The words of a {@link WordGenerator} ordered by frequency, held as parallel primitive arrays.
+ * <p>
+ * Words are ranked by increasing frequency and, for the same frequency, by decreasing word. A word that was added
+ * more than once with the same frequency is only ranked once. Lookups by frequency are binary searches and return
+ * rank ranges or views, so nothing is copied.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public final class FrequencyIndex
+{
+    private final WordGenerator wg;
+    
+    private final int[] positions;
+    
+    private final long[] frequencies;
+    
+    FrequencyIndex(WordGenerator wg, final long[] wordFrequencies, int count)
+    {
+        this.wg = wg;
+        
+        // Ties are broken exactly as by String
+        final String[] words = new String[count];
+        for(int i = 0; i < count; i++)
+        {
+            words[i] = wg.getWordAt(i);
+        }
+        
+        Integer[] order = new Integer[count];
+        for(int i = 0; i < count; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer first, Integer second)
+            {
+                int compare = Long.compare(wordFrequencies[first], wordFrequencies[second]);
+                return compare != 0 ? compare : words[second].compareTo(words[first]);
+            }
+        });
+        
+        int[] sortedPositions = new int[count];
+        long[] sortedFrequencies = new long[count];
+        int size = 0;
+        for(int i = 0; i < count; i++)
+        {
+            int position = order[i];
+            if((size > 0) && (sortedFrequencies[size - 1] == wordFrequencies[position]) && words[sortedPositions[size - 1]].equals(words[position]))
+            {
+                continue;
+            }
+            sortedPositions[size] = position;
+            sortedFrequencies[size++] = wordFrequencies[position];
+        }
+        this.positions = Arrays.copyOf(sortedPositions, size);
+        this.frequencies = Arrays.copyOf(sortedFrequencies, size);
+    }
+    
+    /**
+     * @return the number of ranked words
+     */
+    public int size()
+    {
+        return positions.length;
+    }
+    
+    /**
+     * @return the frequency of the word at a rank
+     */
+    public long getFrequency(int rank)
+    {
+        return frequencies[rank];
+    }
+    
+    /**
+     * @return the position in the word generator of the word at a rank
+     */
+    public int getPosition(int rank)
+    {
+        return positions[rank];
+    }
+    
+    public String getWord(int rank)
+    {
+        return wg.getWordAt(positions[rank]);
+    }
+    
+    /**
+     * @return the number of words with a frequency less than or equal to the given frequency, which is also the rank
+     *         after the last of them
+     */
+    public int countAtMost(long frequency)
+    {
+        return frequency == Long.MAX_VALUE ? frequencies.length : search(frequency + 1);
+    }
+    
+    /**
+     * @return the number of words with a frequency less than the given frequency, which is also the rank of the
+     *         first word with at least that frequency
+     */
+    public int countLessThan(long frequency)
+    {
+        return search(frequency);
+    }
+    
+    /**
+     * A view of the words in a rank range, from the most frequent (highest rank) to the least frequent.
+     * 
+     * @param from - the lowest rank, inclusive
+     * @param to - the highest rank, exclusive
+     */
+    public List<String> getWordsDescending(int from, int to)
+    {
+        if((from < 0) || (to > positions.length) || (from > to))
+        {
+            throw new IndexOutOfBoundsException("Range " + from + " to " + to + " is not within " + positions.length);
+        }
+        return new DescendingWords(from, to);
+    }
+    
+    /**
+     * Find the first rank with a frequency of at least the given frequency
+     */
+    private int search(long frequency)
+    {
+        int low = 0;
+        int high = frequencies.length;
+        while(low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if(frequencies[middle] < frequency)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private class DescendingWords extends AbstractList<String> implements RandomAccess
+    {
+        private final int from;
+        
+        private final int to;
+        
+        DescendingWords(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String get(int index)
+        {
+            if((index < 0) || (index >= to - from))
+            {
+                throw new IndexOutOfBoundsException("Index " + index + " is not within " + (to - from));
+            }
+            return wg.getWordAt(positions[to - 1 - index]);
+        }
+
+        @Override
+        public int size()
+        {
+            return to - from;
+        }
+    }
+}
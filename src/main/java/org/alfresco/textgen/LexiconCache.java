@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process wide cache of word generators keyed by lexicon class path location.
+ * <p>
+ * Each lexicon is loaded once, however many threads ask for it at the same time, and is then shared. The cache only
+ * holds soft references: a lexicon no generator is using can be released by the garbage collector when memory is
+ * short and is loaded again on the next request.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class LexiconCache
+{
+    private static final ConcurrentHashMap<String, CacheEntry> ENTRIES = new ConcurrentHashMap<String, CacheEntry>();
+    
+    private static final ReferenceQueue<WordGenerator> RELEASED = new ReferenceQueue<WordGenerator>();
+    
+    private LexiconCache()
+    {
+    }
+    
+    /**
+     * Get the shared word generator for a lexicon on the class path, loading it if required.
+     */
+    public static WordGenerator getWordGenerator(String configPath)
+    {
+        purge();
+        CacheEntry entry = ENTRIES.get(configPath);
+        if(entry == null)
+        {
+            CacheEntry created = new CacheEntry(configPath);
+            entry = ENTRIES.putIfAbsent(configPath, created);
+            if(entry == null)
+            {
+                entry = created;
+            }
+        }
+        return entry.get();
+    }
+    
+    /**
+     * @return the number of lexicons currently held
+     */
+    public static int size()
+    {
+        purge();
+        int size = 0;
+        for(CacheEntry entry : ENTRIES.values())
+        {
+            if(entry.isLoaded())
+            {
+                size++;
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Forget all lexicons. Generators already using them are not affected.
+     */
+    public static void clear()
+    {
+        ENTRIES.clear();
+        purge();
+    }
+    
+    private static void purge()
+    {
+        Reference<? extends WordGenerator> released;
+        while((released = RELEASED.poll()) != null)
+        {
+            CacheEntry entry = ((EntryReference)released).entry;
+            if(entry.reference == released)
+            {
+                ENTRIES.remove(entry.configPath, entry);
+            }
+        }
+    }
+    
+    private static class CacheEntry
+    {
+        private final String configPath;
+        
+        private volatile EntryReference reference;
+        
+        CacheEntry(String configPath)
+        {
+            this.configPath = configPath;
+        }
+        
+        synchronized WordGenerator get()
+        {
+            WordGenerator wordGenerator = (reference == null) ? null : reference.get();
+            if(wordGenerator == null)
+            {
+                wordGenerator = TextGenerator.loadWordGenerator(configPath);
+                reference = new EntryReference(wordGenerator, this);
+            }
+            return wordGenerator;
+        }
+        
+        boolean isLoaded()
+        {
+            EntryReference current = reference;
+            return (current != null) && (current.get() != null);
+        }
+    }
+    
+    private static class EntryReference extends SoftReference<WordGenerator>
+    {
+        private final CacheEntry entry;
+        
+        EntryReference(WordGenerator wordGenerator, CacheEntry entry)
+        {
+            super(wordGenerator, RELEASED);
+            this.entry = entry;
+        }
+    }
+}
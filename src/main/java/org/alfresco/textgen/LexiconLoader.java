@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+
+/**
+ * Somewhere to load the words of a lexicon from. Every loader reads both the tab separated form and the
+ * {@link BinaryLexicon binary form}, telling them apart by their content.
+ * <p>
+ * Use the words with {@link TextGenerator#TextGenerator(WordGenerator)}, or share them as a {@link TextGenerator}
+ * built from a class path location does.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ * @see ClassPathLexiconLoader
+ * @see FileLexiconLoader
+ * @see MappedLexiconLoader
+ * @see StreamLexiconLoader
+ */
+public interface LexiconLoader
+{
+    /**
+     * Load the words. Each call reads the lexicon again.
+     */
+    public WordGenerator load() throws IOException;
+}
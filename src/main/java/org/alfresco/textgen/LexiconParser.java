@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parse lexicons straight from their bytes.
+ * <p>
+ * The tab separated form has a header line and then a line for each word or variant with seven fields: the word is
+ * the second field, the mode the fourth and the frequency per million words the fifth. '*' is ignored in the word
+ * and mode and '#' in the frequency. A word with the mode ':' has a single variant; otherwise the lines with the word
+ * '@' are the variants, named by the mode. Words with '~' or an apostrophe are left out, only the first of a set of
+ * alternatives separated by '/' is used and a frequency of zero counts as one.
+ * <p>
+ * Lines and fields are found by scanning the bytes, which is safe for UTF-8 because tabs and line ends never occur
+ * inside a multi-byte character.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+final class LexiconParser
+{
+    private static final int FIELDS = 7;
+    
+    private static final int WORD = 1;
+    
+    private static final int MODE = 3;
+    
+    private static final int FREQUENCY = 4;
+    
+    private LexiconParser()
+    {
+    }
+    
+    /**
+     * Read a lexicon in either form from the remaining content of a buffer.
+     */
+    static WordGenerator read(ByteBuffer content) throws IOException
+    {
+        if((content.remaining() >= 4) && (content.duplicate().order(ByteOrder.BIG_ENDIAN).getInt() == BinaryLexicon.MAGIC))
+        {
+            return BinaryLexicon.read(content);
+        }
+        WordGenerator.Builder builder = new WordGenerator.Builder();
+        readTsv(content, builder);
+        return builder.build();
+    }
+    
+    /**
+     * Add the words from the remaining content of a buffer holding a tab separated lexicon.
+     */
+    static void readTsv(ByteBuffer content, WordGenerator.Builder builder) throws IOException
+    {
+        ByteBuffer buffer = content.slice();
+        int limit = buffer.limit();
+        int[] starts = new int[FIELDS];
+        int[] ends = new int[FIELDS];
+        byte[] scratch = new byte[256];
+        
+        int lineNumber = 0;
+        int lineStart = 0;
+        while(lineStart < limit)
+        {
+            // Lines end with \n, \r or \r\n, as for BufferedReader
+            int lineEnd = lineStart;
+            while((lineEnd < limit) && (buffer.get(lineEnd) != '\n') && (buffer.get(lineEnd) != '\r'))
+            {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if((lineEnd < limit) && (buffer.get(lineEnd) == '\r') && (next < limit) && (buffer.get(next) == '\n'))
+            {
+                next++;
+            }
+            
+            lineNumber++;
+            // Skip the header, then any line that does not have exactly seven fields once trailing empty fields are
+            // dropped, as String.split would
+            if((lineNumber > 1) && (split(buffer, lineStart, lineEnd, starts, ends) == FIELDS))
+            {
+                if(scratch.length < lineEnd - lineStart)
+                {
+                    scratch = new byte[lineEnd - lineStart];
+                }
+                String word = decodeWithout(buffer, starts[WORD], ends[WORD], (byte)'*', scratch);
+                String mode = decodeWithout(buffer, starts[MODE], ends[MODE], (byte)'*', scratch);
+                long frequency = parseFrequency(buffer, starts[FREQUENCY], ends[FREQUENCY], scratch, lineNumber);
+                
+                if(mode.equals(":"))
+                {
+                    if(!ignore(word))
+                    {
+                        builder.addWord(firstAlternate(word), frequency == 0 ? 1 : frequency);
+                    }
+                }
+                else if(word.equals("@"))
+                {
+                    if(!ignore(mode))
+                    {
+                        builder.addWord(firstAlternate(mode), frequency == 0 ? 1 : frequency);
+                    }
+                }
+            }
+            lineStart = next;
+        }
+    }
+    
+    /**
+     * Find the tab separated fields of a line, keeping the bounds of the first seven.
+     * 
+     * @return the number of fields, not counting empty fields at the end
+     */
+    private static int split(ByteBuffer buffer, int start, int end, int[] starts, int[] ends)
+    {
+        int fields = 0;
+        int counted = 0;
+        int fieldStart = start;
+        for(int position = start; position <= end; position++)
+        {
+            if((position == end) || (buffer.get(position) == '\t'))
+            {
+                if(fields < FIELDS)
+                {
+                    starts[fields] = fieldStart;
+                    ends[fields] = position;
+                }
+                fields++;
+                if(position > fieldStart)
+                {
+                    counted = fields;
+                }
+                fieldStart = position + 1;
+            }
+        }
+        return counted;
+    }
+    
+    private static String decodeWithout(ByteBuffer buffer, int start, int end, byte skip, byte[] scratch)
+    {
+        int length = 0;
+        for(int position = start; position < end; position++)
+        {
+            byte b = buffer.get(position);
+            if(b != skip)
+            {
+                scratch[length++] = b;
+            }
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Parse a frequency, ignoring '#' and surrounding white space, as Long.parseLong would after they were removed.
+     */
+    private static long parseFrequency(ByteBuffer buffer, int start, int end, byte[] scratch, int lineNumber) throws IOException
+    {
+        int first = start;
+        int last = end;
+        while((first < last) && isTrimmed(buffer.get(first)))
+        {
+            first++;
+        }
+        while((last > first) && isTrimmed(buffer.get(last - 1)))
+        {
+            last--;
+        }
+        
+        long value = 0;
+        boolean negative = false;
+        int digits = 0;
+        for(int position = first; position < last; position++)
+        {
+            byte b = buffer.get(position);
+            if(b == '#')
+            {
+                continue;
+            }
+            if((b >= '0') && (b <= '9') && (value <= (Long.MAX_VALUE - 9) / 10))
+            {
+                value = value * 10 + (b - '0');
+                digits++;
+            }
+            else if(((b == '-') || (b == '+')) && (position == first))
+            {
+                negative = b == '-';
+            }
+            else
+            {
+                // Anything unusual is left to the library
+                String text = decodeWithout(buffer, start, end, (byte)'#', scratch).trim();
+                try
+                {
+                    return Long.parseLong(text);
+                }
+                catch(NumberFormatException e)
+                {
+                    throw new IOException("Invalid frequency '" + text + "' on line " + lineNumber, e);
+                }
+            }
+        }
+        if(digits == 0)
+        {
+            throw new IOException("Missing frequency on line " + lineNumber);
+        }
+        return negative ? -value : value;
+    }
+    
+    /**
+     * '#' is removed before trimming, so it does not stop white space being trimmed
+     */
+    private static boolean isTrimmed(byte b)
+    {
+        return ((b >= 0) && (b <= ' ')) || (b == '#');
+    }
+    
+    private static String firstAlternate(String word)
+    {
+        int slash = word.indexOf('/');
+        return (slash == -1 ? word : word.substring(0, slash)).trim();
+    }
+
+    private static boolean ignore(String word)
+    {
+        return word.contains("~") || word.contains("'");
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A set of named lexicons, such as one for each language, that are only loaded when they are first used.
+ * <p>
+ * A loaded lexicon is shared by every thread that asks for it, and is loaded once however many threads ask at the
+ * same time. When the lexicons that are loaded use more than the memory budget, those used least recently are
+ * dropped until they fit again, and are loaded again if they are asked for later. The lexicon just loaded is always
+ * kept, even if it is larger than the budget on its own. A dropped lexicon is only freed once nothing else, such as a
+ * {@link TextGenerator}, refers to it.
+ * <p>
+ * Unlike {@link LexiconCache}, a registry is an object with its own budget, so separate registries do not share
+ * lexicons.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class LexiconRegistry
+{
+    private final long memoryBudget;
+    
+    /**
+     * In access order, so the least recently used come first; guarded by this
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    
+    private long memoryUsage = 0;
+    
+    private long loadCount = 0;
+    
+    private long evictionCount = 0;
+    
+    /**
+     * @param memoryBudget - the most heap, in bytes, that loaded lexicons should use, as estimated by
+     *        {@link WordGenerator#getMemoryUsage()}
+     */
+    public LexiconRegistry(long memoryBudget)
+    {
+        if(memoryBudget < 0)
+        {
+            throw new IllegalArgumentException("Memory budget can not be negative: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+    }
+    
+    /**
+     * Add a lexicon, or replace the one with the same name. Nothing is loaded until it is used.
+     */
+    public synchronized void register(String name, LexiconLoader loader)
+    {
+        Entry previous = entries.put(name, new Entry(loader));
+        if((previous != null) && (previous.wordGenerator != null))
+        {
+            memoryUsage -= previous.memoryUsage;
+        }
+    }
+    
+    /**
+     * Add a lexicon from the class path.
+     */
+    public void register(String name, String configPath)
+    {
+        register(name, new ClassPathLexiconLoader(configPath));
+    }
+    
+    /**
+     * @return true if there is a lexicon with the name, whether or not it is loaded
+     */
+    public synchronized boolean isRegistered(String name)
+    {
+        return entries.containsKey(name);
+    }
+    
+    /**
+     * @return the names of the lexicons in the registry
+     */
+    public synchronized List<String> getNames()
+    {
+        return new ArrayList<String>(entries.keySet());
+    }
+    
+    /**
+     * Get the words for a lexicon, loading them if required.
+     * 
+     * @throws IllegalArgumentException if there is no lexicon with the name
+     */
+    public WordGenerator getWordGenerator(String name) throws IOException
+    {
+        Entry entry;
+        FutureTask<WordGenerator> loading;
+        boolean load = false;
+        synchronized(this)
+        {
+            entry = entries.get(name);
+            if(entry == null)
+            {
+                throw new IllegalArgumentException("No lexicon registered as " + name);
+            }
+            if(entry.wordGenerator != null)
+            {
+                return entry.wordGenerator;
+            }
+            if(entry.loading == null)
+            {
+                final LexiconLoader loader = entry.loader;
+                entry.loading = new FutureTask<WordGenerator>(new Callable<WordGenerator>()
+                {
+                    public WordGenerator call() throws IOException
+                    {
+                        return loader.load();
+                    }
+                });
+                load = true;
+            }
+            loading = entry.loading;
+        }
+        
+        // Load outside the lock so other lexicons can still be used
+        if(load)
+        {
+            loading.run();
+        }
+        
+        WordGenerator wordGenerator;
+        try
+        {
+            wordGenerator = loading.get();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for lexicon " + name, e);
+        }
+        catch(ExecutionException e)
+        {
+            synchronized(this)
+            {
+                // Let the next request try again
+                if(entry.loading == loading)
+                {
+                    entry.loading = null;
+                }
+            }
+            if(e.getCause() instanceof IOException)
+            {
+                throw (IOException)e.getCause();
+            }
+            if(e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new IOException("Failed to load lexicon " + name, e.getCause());
+        }
+        
+        if(load)
+        {
+            synchronized(this)
+            {
+                // The lexicon may have been registered again while it loaded
+                if((entry.loading == loading) && (entries.get(name) == entry))
+                {
+                    entry.loading = null;
+                    entry.wordGenerator = wordGenerator;
+                    entry.memoryUsage = wordGenerator.getMemoryUsage();
+                    memoryUsage += entry.memoryUsage;
+                    loadCount++;
+                    evict(entry);
+                }
+            }
+        }
+        return wordGenerator;
+    }
+    
+    /**
+     * Get a text generator for a lexicon, loading the words if required.
+     */
+    public TextGenerator getTextGenerator(String name, SamplerVersion samplerVersion) throws IOException
+    {
+        return new TextGenerator(getWordGenerator(name), samplerVersion);
+    }
+    
+    public long getMemoryBudget()
+    {
+        return memoryBudget;
+    }
+    
+    /**
+     * @return the estimated heap used by the lexicons that are loaded
+     */
+    public synchronized long getMemoryUsage()
+    {
+        return memoryUsage;
+    }
+    
+    /**
+     * @return the number of lexicons that are loaded
+     */
+    public synchronized int getLoadedCount()
+    {
+        int count = 0;
+        for(Entry entry : entries.values())
+        {
+            if(entry.wordGenerator != null)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * @return the number of times a lexicon has been loaded, including loading it again after it was dropped
+     */
+    public synchronized long getLoadCount()
+    {
+        return loadCount;
+    }
+    
+    /**
+     * @return the number of times a lexicon has been dropped to stay within the budget
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+    
+    /**
+     * Drop the least recently used lexicons, other than the one to keep, until the rest fit in the budget
+     */
+    private void evict(Entry keep)
+    {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while((memoryUsage > memoryBudget) && iterator.hasNext())
+        {
+            Entry entry = iterator.next().getValue();
+            if((entry != keep) && (entry.wordGenerator != null))
+            {
+                entry.wordGenerator = null;
+                memoryUsage -= entry.memoryUsage;
+                entry.memoryUsage = 0;
+                evictionCount++;
+            }
+        }
+    }
+    
+    private static class Entry
+    {
+        final LexiconLoader loader;
+        
+        WordGenerator wordGenerator;
+        
+        long memoryUsage;
+        
+        FutureTask<WordGenerator> loading;
+        
+        Entry(LexiconLoader loader)
+        {
+            this.loader = loader;
+        }
+    }
+}
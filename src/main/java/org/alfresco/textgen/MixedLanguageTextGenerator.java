@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Generate a corpus in several languages. The language of each document is drawn from a weighted distribution using
+ * the document seed, so a document always has the same language and content, and the lexicon for the language is
+ * taken from a {@link LexiconRegistry} - only lexicons that are in use need to be loaded.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class MixedLanguageTextGenerator
+{
+    /**
+     * The index mixed with a document seed to choose its language, kept apart from the indexes used for chunks
+     */
+    private static final long LANGUAGE_INDEX = -1;
+    
+    private final LexiconRegistry registry;
+    
+    private final String[] languages;
+    
+    private final double[] cumulativeWeights;
+    
+    private final SamplerVersion samplerVersion;
+    
+    /**
+     * @param languages - the names of lexicons in the registry
+     * @param weights - the relative weight of each language
+     */
+    public MixedLanguageTextGenerator(LexiconRegistry registry, String[] languages, double[] weights, SamplerVersion samplerVersion)
+    {
+        if((languages.length == 0) || (languages.length != weights.length))
+        {
+            throw new IllegalArgumentException("There must be a weight for each of at least one language");
+        }
+        this.registry = registry;
+        this.languages = languages.clone();
+        this.samplerVersion = samplerVersion;
+        
+        cumulativeWeights = new double[weights.length];
+        double total = 0;
+        for(int i = 0; i < weights.length; i++)
+        {
+            if(!(weights[i] >= 0) || Double.isInfinite(weights[i]))
+            {
+                throw new IllegalArgumentException("Invalid weight " + weights[i] + " for " + languages[i]);
+            }
+            if(!registry.isRegistered(languages[i]))
+            {
+                throw new IllegalArgumentException("No lexicon registered as " + languages[i]);
+            }
+            total += weights[i];
+            cumulativeWeights[i] = total;
+        }
+        if(total == 0)
+        {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+        for(int i = 0; i < cumulativeWeights.length; i++)
+        {
+            cumulativeWeights[i] /= total;
+        }
+    }
+    
+    /**
+     * @return the language of the document generated from a seed
+     */
+    public String getLanguage(long seed)
+    {
+        double value = (SeedMixer.mix(seed, LANGUAGE_INDEX) >>> 11) * 0x1.0p-53;
+        int position = Arrays.binarySearch(cumulativeWeights, value);
+        position = position < 0 ? -(position + 1) : position + 1;
+        // Skip languages with no weight, and guard against rounding at the top
+        while((position < cumulativeWeights.length - 1) && (cumulativeWeights[position] <= value))
+        {
+            position++;
+        }
+        return languages[Math.min(position, languages.length - 1)];
+    }
+    
+    /**
+     * @return a generator for the language of the document generated from a seed, loading its lexicon if required
+     */
+    public TextGenerator getTextGenerator(long seed) throws IOException
+    {
+        return registry.getTextGenerator(getLanguage(seed), samplerVersion);
+    }
+    
+    /**
+     * Generate a document in the language chosen for its seed.
+     * 
+     * @see RandomTextProvider#getInputStream(long, long, String...)
+     */
+    public InputStream getInputStream(long seed, long length, String... strings) throws IOException
+    {
+        return getTextGenerator(seed).getInputStream(seed, length, strings);
+    }
+}
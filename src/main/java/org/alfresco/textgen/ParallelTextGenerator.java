@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generate a single large document in parallel. The document has the same content as a
+ * {@link ChunkedRandomTextInputStream} with the same seed, length and chunk size - whatever the parallelism.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class ParallelTextGenerator
+{
+    /**
+     * The chunks generated by one task before it stops splitting
+     */
+    private static final int CHUNKS_PER_TASK = 4;
+    
+    private WordGenerator wg;
+    
+    private WordSampler sampler;
+    
+    private ForkJoinPool pool;
+    
+    public ParallelTextGenerator(WordGenerator wg, WordSampler sampler, ForkJoinPool pool)
+    {
+        this.wg = wg;
+        this.sampler = sampler;
+        this.pool = pool;
+    }
+    
+    /**
+     * Generate a document into a file, replacing any existing content.
+     */
+    public void generate(long seed, long length, int chunkSize, Path file, String... strings) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try
+        {
+            generate(seed, length, chunkSize, new FileChannelSink(channel), strings);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Generate a document into a set of buffers. The document is laid out across the remaining space in each buffer
+     * in turn and the position of each buffer is moved on past the bytes it received.
+     */
+    public void generate(long seed, long length, int chunkSize, ByteBuffer[] buffers, String... strings) throws IOException
+    {
+        long remaining = 0;
+        for(ByteBuffer buffer : buffers)
+        {
+            remaining += buffer.remaining();
+        }
+        if(remaining < length)
+        {
+            throw new IllegalArgumentException("Buffers have space for " + remaining + " bytes, not " + length);
+        }
+        
+        generate(seed, length, chunkSize, new ByteBufferSink(buffers), strings);
+        
+        long toAdvance = length;
+        for(ByteBuffer buffer : buffers)
+        {
+            int advance = (int)Math.min(toAdvance, buffer.remaining());
+            buffer.position(buffer.position() + advance);
+            toAdvance -= advance;
+        }
+    }
+    
+    private void generate(long seed, long length, int chunkSize, ChunkSink sink, String[] strings) throws IOException
+    {
+        if(chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        // Fail early if the fixed strings do not fit
+        ChunkedRandomTextInputStream.checkFixedStrings(seed, length, chunkSize, strings);
+        
+        long chunkCount = (length + chunkSize - 1) / chunkSize;
+        try
+        {
+            pool.invoke(new ChunkTask(seed, length, chunkSize, strings, sink, 0, chunkCount));
+        }
+        catch(RuntimeException e)
+        {
+            rethrowIOException(e);
+        }
+    }
+    
+    /**
+     * Throw the IOException that a task failed with, or the exception itself if there was none. A task that failed
+     * on another worker is rethrown by the pool as a new exception caused by the original, so the whole chain of
+     * causes is searched.
+     */
+    static void rethrowIOException(RuntimeException e) throws IOException
+    {
+        for(Throwable cause = e; cause != null; cause = cause.getCause())
+        {
+            if(cause instanceof UncheckedIOException)
+            {
+                throw ((UncheckedIOException)cause).getCause();
+            }
+        }
+        throw e;
+    }
+    
+    private class ChunkTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private long seed;
+        private long length;
+        private int chunkSize;
+        private String[] strings;
+        private ChunkSink sink;
+        private long from;
+        private long to;
+        
+        ChunkTask(long seed, long length, int chunkSize, String[] strings, ChunkSink sink, long from, long to)
+        {
+            this.seed = seed;
+            this.length = length;
+            this.chunkSize = chunkSize;
+            this.strings = strings;
+            this.sink = sink;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from > CHUNKS_PER_TASK)
+            {
+                long middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(seed, length, chunkSize, strings, sink, from, middle),
+                        new ChunkTask(seed, length, chunkSize, strings, sink, middle, to));
+                return;
+            }
+            
+            try
+            {
+                byte[] buffer = new byte[chunkSize];
+                for(long index = from; index < to; index++)
+                {
+                    RandomTextInputStream chunk = ChunkedRandomTextInputStream.openChunk(wg, sampler, seed, length, chunkSize, strings, index);
+                    int count = 0;
+                    int read;
+                    while((read = chunk.read(buffer, count, chunkSize - count)) > 0)
+                    {
+                        count += read;
+                    }
+                    sink.write(index * chunkSize, buffer, count);
+                }
+            }
+            catch(IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    /**
+     * Somewhere to put generated bytes by their position in the document - called concurrently for distinct ranges.
+     */
+    private interface ChunkSink
+    {
+        void write(long position, byte[] bytes, int length) throws IOException;
+    }
+    
+    private static class FileChannelSink implements ChunkSink
+    {
+        private FileChannel channel;
+        
+        FileChannelSink(FileChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        public void write(long position, byte[] bytes, int length) throws IOException
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+            while(buffer.hasRemaining())
+            {
+                channel.write(buffer, position + buffer.position());
+            }
+        }
+    }
+    
+    private static class ByteBufferSink implements ChunkSink
+    {
+        private ByteBuffer[] buffers;
+        
+        private long[] starts;
+        
+        ByteBufferSink(ByteBuffer[] buffers)
+        {
+            this.buffers = buffers;
+            this.starts = new long[buffers.length];
+            long start = 0;
+            for(int i = 0; i < buffers.length; i++)
+            {
+                starts[i] = start;
+                start += buffers[i].remaining();
+            }
+        }
+
+        public void write(long position, byte[] bytes, int length)
+        {
+            int offset = 0;
+            for(int i = 0; (i < buffers.length) && (offset < length); i++)
+            {
+                long end = starts[i] + buffers[i].remaining();
+                if(position + offset >= end)
+                {
+                    continue;
+                }
+                ByteBuffer target = buffers[i].duplicate();
+                target.position(target.position() + (int)(position + offset - starts[i]));
+                int count = Math.min(length - offset, target.remaining());
+                target.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A repeatable workload of phrase queries made up of words of limited frequency.
+ * <p>
+ * Each query is generated from its own seed, derived from the workload seed and the query index, so any range of
+ * queries can be generated on its own - in order, from an iterator, or split across threads - and query n is always
+ * the same. Only words made entirely of letters and digits are used. They are ranked by frequency once, and the
+ * candidates for each frequency are a precomputed prefix of that ranking, so choosing a word is a single draw.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class QueryWorkload
+{
+    /**
+     * The queries generated by one task before it stops splitting
+     */
+    private static final int QUERIES_PER_TASK = 1024;
+    
+    private final String field;
+    
+    private final int minFpmw;
+    
+    private final int maxFpmw;
+    
+    private final int minWords;
+    
+    private final int maxWords;
+    
+    private final long seed;
+    
+    /**
+     * Letter and digit only words by increasing frequency
+     */
+    private final String[] words;
+    
+    /**
+     * For each frequency from the minimum, the number of words with at most that frequency
+     */
+    private final int[] candidates;
+    
+    /**
+     * Receives generated queries. It is called from many threads at once when queries are generated in parallel.
+     */
+    public interface Sink
+    {
+        void accept(long index, String query);
+    }
+    
+    /**
+     * @param field - the field to query, or null for just the quoted phrase
+     * @param minFpmw - the lowest frequency limit (per million words) for each word, inclusive
+     * @param maxFpmw - the highest frequency limit (per million words) for each word, exclusive
+     * @param minWords - the least words in a query, inclusive
+     * @param maxWords - the most words in a query, exclusive
+     * @param seed - the seed for the whole workload
+     */
+    public QueryWorkload(WordGenerator wordGenerator, String field, int minFpmw, int maxFpmw, int minWords, int maxWords, long seed)
+    {
+        if((minFpmw < 0) || (maxFpmw < minFpmw) || (minWords < 1) || (maxWords < minWords))
+        {
+            throw new IllegalArgumentException("Invalid query workload range: frequency " + minFpmw + " to " + maxFpmw + ", words " + minWords + " to " + maxWords);
+        }
+        this.field = field;
+        this.minFpmw = minFpmw;
+        this.maxFpmw = maxFpmw;
+        this.minWords = minWords;
+        this.maxWords = maxWords;
+        this.seed = seed;
+        
+        FrequencyIndex index = wordGenerator.getFrequencyIndex();
+        String[] alphanumeric = new String[index.size()];
+        long[] frequencies = new long[index.size()];
+        int count = 0;
+        for(int rank = 0; rank < index.size(); rank++)
+        {
+            String word = index.getWord(rank);
+            if(isAlphanumeric(word))
+            {
+                alphanumeric[count] = word;
+                frequencies[count++] = index.getFrequency(rank);
+            }
+        }
+        this.words = Arrays.copyOf(alphanumeric, count);
+        
+        this.candidates = new int[Math.max(maxFpmw - minFpmw, 1)];
+        int end = 0;
+        for(int i = 0; i < candidates.length; i++)
+        {
+            while((end < count) && (frequencies[end] <= minFpmw + i))
+            {
+                end++;
+            }
+            candidates[i] = end;
+        }
+    }
+    
+    private static boolean isAlphanumeric(String word)
+    {
+        if(word.isEmpty())
+        {
+            return false;
+        }
+        for(int i = 0; i < word.length(); )
+        {
+            int cp = word.codePointAt(i);
+            if(!Character.isAlphabetic(cp) && !Character.isDigit(cp))
+            {
+                return false;
+            }
+            i += Character.charCount(cp);
+        }
+        return true;
+    }
+    
+    /**
+     * Get a single query from the workload
+     */
+    public String getQuery(long index)
+    {
+        return getQuery(index, new Random(), new StringBuilder());
+    }
+    
+    private String getQuery(long index, Random random, StringBuilder builder)
+    {
+        random.setSeed(SeedMixer.mix(seed, index));
+        builder.setLength(0);
+        
+        int wordCount = minWords + nextInt(random, maxWords - minWords);
+        if(field != null)
+        {
+            builder.append(field).append(":\"");
+        }
+        for(int i = 0; i < wordCount; i++)
+        {
+            int available = candidates[nextInt(random, maxFpmw - minFpmw)];
+            if(i > 0)
+            {
+                builder.append(" ");
+            }
+            if(available > 0)
+            {
+                builder.append(words[random.nextInt(available)]);
+            }
+        }
+        if(field != null)
+        {
+            builder.append("\"");
+        }
+        return builder.toString();
+    }
+    
+    private static int nextInt(Random random, int bound)
+    {
+        return bound > 0 ? random.nextInt(bound) : 0;
+    }
+    
+    /**
+     * Iterate over a range of queries, generating each one as it is asked for.
+     * 
+     * @param from - the first query index, inclusive
+     * @param to - the last query index, exclusive
+     */
+    public Iterator<String> iterator(final long from, final long to)
+    {
+        return new Iterator<String>()
+        {
+            private final Random random = new Random();
+            
+            private final StringBuilder builder = new StringBuilder();
+            
+            private long next = from;
+            
+            public boolean hasNext()
+            {
+                return next < to;
+            }
+
+            public String next()
+            {
+                if(next >= to)
+                {
+                    throw new NoSuchElementException();
+                }
+                return getQuery(next++, random, builder);
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    /**
+     * Generate a range of queries in order on the calling thread.
+     */
+    public void generate(long from, long to, Sink sink)
+    {
+        Random random = new Random();
+        StringBuilder builder = new StringBuilder();
+        for(long index = from; index < to; index++)
+        {
+            sink.accept(index, getQuery(index, random, builder));
+        }
+    }
+    
+    /**
+     * Generate a range of queries split across a pool. The queries are the same as when generated in order but
+     * reach the sink in no particular order, so the sink must be thread safe.
+     */
+    public void generate(long from, long to, Sink sink, ForkJoinPool pool)
+    {
+        pool.invoke(new QueryTask(from, to, sink));
+    }
+    
+    private class QueryTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        
+        private final long to;
+        
+        private final Sink sink;
+        
+        QueryTask(long from, long to, Sink sink)
+        {
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from > QUERIES_PER_TASK)
+            {
+                long middle = (from + to) >>> 1;
+                invokeAll(new QueryTask(from, middle, sink), new QueryTask(middle, to, sink));
+            }
+            else
+            {
+                generate(from, to, sink);
+            }
+        }
+    }
+}
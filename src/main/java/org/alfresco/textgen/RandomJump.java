@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.util.Random;
+
+/**
+ * Jump ahead in the sequence of a {@link Random} without generating the values in between.
+ * <p>
+ * {@link Random} is a 48 bit linear congruential generator, so n steps can be combined into a single step by
+ * modular exponentiation of the step in O(log n) time. Jumping leaves the generator in exactly the state it would
+ * have reached by drawing the values, so content stays the same as it always has been.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public final class RandomJump
+{
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    
+    private static final long ADDEND = 0xBL;
+    
+    private static final long MASK = (1L << 48) - 1;
+    
+    private RandomJump()
+    {
+    }
+    
+    /**
+     * Put a random in the state it would have after {@code setSeed(seed)} followed by {@code count} calls to
+     * {@link Random#nextDouble()}.
+     */
+    public static void seekDoubles(Random random, long seed, long count)
+    {
+        // Each double uses two steps of the generator
+        seek(random, seed, 2 * count);
+    }
+    
+    /**
+     * Put a random in the state it would have after {@code setSeed(seed)} followed by {@code steps} steps of the
+     * generator. Each int or float uses one step; each long, double or boolean uses two.
+     */
+    public static void seek(Random random, long seed, long steps)
+    {
+        if(steps < 0)
+        {
+            throw new IllegalArgumentException("Can not jump back " + steps + " steps");
+        }
+        long state = (seed ^ MULTIPLIER) & MASK;
+        state = advance(state, steps);
+        // setSeed scrambles with the multiplier, so pre-scramble to set the state directly
+        random.setSeed(state ^ MULTIPLIER);
+    }
+    
+    /**
+     * Advance a raw generator state by any number of steps
+     */
+    static long advance(long state, long steps)
+    {
+        long multiplier = 1L;
+        long addend = 0L;
+        long stepMultiplier = MULTIPLIER;
+        long stepAddend = ADDEND;
+        // Arithmetic is modulo 2^64, which is also correct modulo 2^48
+        while(steps > 0)
+        {
+            if((steps & 1) != 0)
+            {
+                multiplier *= stepMultiplier;
+                addend = addend * stepMultiplier + stepAddend;
+            }
+            stepAddend = (stepMultiplier + 1) * stepAddend;
+            stepMultiplier *= stepMultiplier;
+            steps >>>= 1;
+        }
+        return (multiplier * state + addend) & MASK;
+    }
+}
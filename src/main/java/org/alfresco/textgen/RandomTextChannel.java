@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A channel of random words that writes straight into the buffers it is given.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class RandomTextChannel implements ReadableByteChannel
+{
+    private RandomTextInputStream stream;
+    
+    private boolean open = true;
+    
+    public RandomTextChannel(RandomTextInputStream stream)
+    {
+        this.stream = stream;
+    }
+
+    public int read(ByteBuffer dst) throws IOException
+    {
+        if(!open)
+        {
+            throw new ClosedChannelException();
+        }
+        return stream.read(dst);
+    }
+
+    public boolean isOpen()
+    {
+        return open;
+    }
+
+    public void close() throws IOException
+    {
+        open = false;
+    }
+}
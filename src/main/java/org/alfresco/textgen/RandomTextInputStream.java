@@ -20,6 +20,10 @@ package org.alfresco.textgen;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -30,139 +34,469 @@ import java.util.Random;
  */
 public class RandomTextInputStream extends InputStream
 {
+    private static final byte SPACE = ' ';
+    
     private int bytePosition = 0;
     private long bytesSoFar;
     private WordGenerator wg;
+    private WordSampler sampler;
     private long length;
     private byte[] currentBytes;
+    private int currentEnd;
     private Random random = new Random();
     private boolean pad = false;
+    private boolean spacePending = false;
+    private long padding = 0;
+    
+    // Reused between documents to encode the fixed strings; the next are encoded into the spare bytes so a failed
+    // reset does not disturb the current document
+    private Random selection = new Random();
+    private int[] selected = new int[0];
+    private byte[] fixedBytes = new byte[0];
+    private byte[] spareBytes = new byte[0];
     
     public RandomTextInputStream(WordGenerator wg, long seed, long length, String[] strings) throws IOException
+    {
+        this(wg, wg, seed, length, strings);
+    }
+    
+    /**
+     * @param sampler - selects the words to use from the word generator
+     */
+    public RandomTextInputStream(WordGenerator wg, WordSampler sampler, long seed, long length, String[] strings) throws IOException
+    {
+        this(wg, sampler, seed, length, strings, false);
+    }
+    
+    /**
+     * @param leadingSpace - start with a space before the first word, used when this text continues on from other text
+     */
+    RandomTextInputStream(WordGenerator wg, WordSampler sampler, long seed, long length, String[] strings, boolean leadingSpace) throws IOException
     {
         this.wg = wg;
+        this.sampler = sampler;
+        reset(seed, length, strings, leadingSpace);
+    }
+    
+    /**
+     * Start the stream again for another document, exactly as if it had been newly created with the same word
+     * generator and sampler. Nothing is allocated unless the fixed strings are longer than any used before, so one
+     * stream per thread can generate any number of documents.
+     * 
+     * @param seed - the initial seed for the state of the generator - to give repeatable content
+     * @param length - the length of content required in bytes
+     * @param strings - an optional array of strings, as for {@link RandomTextProvider#getInputStream(long, long, String...)}
+     */
+    public void reset(long seed, long length, String... strings)
+    {
+        reset(seed, length, strings, false);
+    }
+    
+    /**
+     * The fixed strings are chosen and checked before anything else changes, so if they do not fit the stream carries
+     * on with the document it had.
+     */
+    private void reset(long seed, long length, String[] strings, boolean leadingSpace)
+    {
+        if((strings != null) && (selected.length < strings.length))
+        {
+            selected = new int[strings.length];
+        }
+        int count = selectFixedStrings(selection, seed, strings, selected);
+        int fixedLength = 0;
+        if(count != -1)
+        {
+            fixedLength = encodeFixedStrings(strings, count);
+            if(fixedLength > length)
+            {
+                throw new IllegalStateException("Length "+length+ " is too short for required strings: "+ joinFixedStrings(strings, Arrays.copyOf(selected, count)));
+            }
+            byte[] encoded = spareBytes;
+            spareBytes = fixedBytes;
+            fixedBytes = encoded;
+        }
+        
         this.length = length;
+        bytePosition = 0;
+        spacePending = false;
+        padding = 0;
+        if(count == -1)
+        {
+            currentBytes = null;
+            currentEnd = 0;
+            bytesSoFar = 0;
+            pad = leadingSpace;
+        }
+        else
+        {
+            currentBytes = fixedBytes;
+            currentEnd = fixedLength;
+            bytesSoFar = fixedLength;
+            pad = true;
+        }
+        
+        random.setSeed(seed);
+    }
+    
+    /**
+     * Encode the selected fixed strings, separated by spaces, into the spare buffer.
+     * 
+     * @return the number of bytes
+     */
+    private int encodeFixedStrings(String[] strings, int count)
+    {
+        int maximum = 0;
+        for(int i = 0; i < count; i++)
+        {
+            maximum += strings[selected[i]].length() * 3 + 1;
+        }
+        if(spareBytes.length < maximum)
+        {
+            spareBytes = new byte[maximum];
+        }
         
-        if((strings != null) && (strings.length > 0))
+        int offset = 0;
+        for(int i = 0; i < count; i++)
+        {
+            if(i > 0)
+            {
+                spareBytes[offset++] = SPACE;
+            }
+            offset = encode(strings[selected[i]], spareBytes, offset);
+        }
+        return offset;
+    }
+    
+    /**
+     * Encode a string as UTF-8 in the same way as {@link String#getBytes(java.nio.charset.Charset)}, including
+     * replacing unpaired surrogates with '?'. The buffer must have room for three bytes per char.
+     * 
+     * @return the offset after the last byte written
+     */
+    static int encode(String string, byte[] buffer, int offset)
+    {
+        for(int i = 0; i < string.length(); i++)
         {
-            double requiredProbability = 1.0;
-            double probability;
-            random.setSeed(seed);
-            StringBuffer buffer = new StringBuffer();
-            for(String string : strings)
+            char c = string.charAt(i);
+            if(c < 0x80)
+            {
+                buffer[offset++] = (byte)c;
+            }
+            else if(c < 0x800)
+            {
+                buffer[offset++] = (byte)(0xC0 | (c >> 6));
+                buffer[offset++] = (byte)(0x80 | (c & 0x3F));
+            }
+            else if(Character.isSurrogate(c))
             {
-                if(string != null)
+                if(Character.isHighSurrogate(c) && (i + 1 < string.length()) && Character.isLowSurrogate(string.charAt(i + 1)))
                 {
-                    probability = random.nextDouble();
-                    if(probability < requiredProbability)
-                    {
-                        if(buffer.length() > 0)
-                        {
-                            buffer.append(" ");
-                        }
-                        buffer.append(string);
-                    }
+                    int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                    buffer[offset++] = (byte)(0xF0 | (codePoint >> 18));
+                    buffer[offset++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[offset++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[offset++] = (byte)(0x80 | (codePoint & 0x3F));
+                }
+                else
+                {
+                    buffer[offset++] = '?';
                 }
-                requiredProbability /= 10;
             }
-            
-            String fixedStrings = buffer.toString();
-            if(fixedStrings.length() > length)
+            else
             {
-                throw new IllegalStateException("Length "+length+ " is too short for required strings: "+ fixedStrings);
+                buffer[offset++] = (byte)(0xE0 | (c >> 12));
+                buffer[offset++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                buffer[offset++] = (byte)(0x80 | (c & 0x3F));
             }
-            bytesSoFar = fixedStrings.getBytes("UTF-8").length;
-            
-            currentBytes = fixedStrings.getBytes("UTF-8");
-            
-            pad = true;
         }
-        else
+        return offset;
+    }
+
+    /**
+     * Choose the fixed strings for a seed. The first string is always used, the next with a probability of 10% and
+     * so on; null strings are skipped but still reduce the probability.
+     * 
+     * @return the indexes of the chosen strings (which may be empty) or null if there are no strings to choose
+     */
+    static int[] selectFixedStrings(Random random, long seed, String[] strings)
+    {
+        if((strings == null) || (strings.length == 0))
+        {
+            return null;
+        }
+        int[] selected = new int[strings.length];
+        return Arrays.copyOf(selected, selectFixedStrings(random, seed, strings, selected));
+    }
+    
+    /**
+     * Choose the fixed strings for a seed into an existing array, which must be at least as long as the strings.
+     * 
+     * @return the number of strings chosen or -1 if there are no strings to choose
+     */
+    static int selectFixedStrings(Random random, long seed, String[] strings, int[] into)
+    {
+        if((strings == null) || (strings.length == 0))
         {
-            pad = false;
+            return -1;
         }
         
+        double requiredProbability = 1.0;
+        double probability;
         random.setSeed(seed);
+        int count = 0;
+        for(int i = 0; i < strings.length; i++)
+        {
+            if(strings[i] != null)
+            {
+                probability = random.nextDouble();
+                if(probability < requiredProbability)
+                {
+                    into[count++] = i;
+                }
+            }
+            requiredProbability /= 10;
+        }
+        return count;
+    }
+    
+    /**
+     * @return the chosen strings separated by spaces or null if there were no strings to choose
+     */
+    static String joinFixedStrings(String[] strings, int[] selected)
+    {
+        if(selected == null)
+        {
+            return null;
+        }
+        StringBuffer buffer = new StringBuffer();
+        for(int index : selected)
+        {
+            if(buffer.length() > 0)
+            {
+                buffer.append(" ");
+            }
+            buffer.append(strings[index]);
+        }
+        return buffer.toString();
     }
 
     @Override
     public int read() throws IOException
     {
-        if((currentBytes != null) && (bytePosition < currentBytes.length))
+        while(true)
         {
-            return currentBytes[bytePosition++];
+            if(spacePending)
+            {
+                spacePending = false;
+                return SPACE;
+            }
+            if((currentBytes != null) && (bytePosition < currentEnd))
+            {
+                return currentBytes[bytePosition++] & 0xFF;
+            }
+            if(padding > 0)
+            {
+                padding--;
+                return SPACE;
+            }
+            if(!getMoreBytes())
+            {
+                return -1;
+            }
         }
-        
-        getMoreBytes();
-        if (bytePosition > 0)
+    }
+
+    /**
+     * Fill the array directly from the encoded words - there is no intermediate buffering or per word allocation.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if((off < 0) || (len < 0) || (len > b.length - off))
         {
-            throw new IllegalStateException("Byte position should be set back to zero for more bytes.");
+            throw new IndexOutOfBoundsException();
         }
-        
-        if (currentBytes == null || currentBytes.length == 0)
+        if(len == 0)
         {
-            return -1;
+            return 0;
         }
-        else
+        
+        int count = 0;
+        while(count < len)
         {
-            return currentBytes[bytePosition++];
+            if(spacePending)
+            {
+                spacePending = false;
+                b[off + count++] = SPACE;
+            }
+            else if((currentBytes != null) && (bytePosition < currentEnd))
+            {
+                int toCopy = Math.min(len - count, currentEnd - bytePosition);
+                System.arraycopy(currentBytes, bytePosition, b, off + count, toCopy);
+                bytePosition += toCopy;
+                count += toCopy;
+            }
+            else if(padding > 0)
+            {
+                int toFill = (int)Math.min(len - count, padding);
+                Arrays.fill(b, off + count, off + count + toFill, SPACE);
+                padding -= toFill;
+                count += toFill;
+            }
+            else if(!getMoreBytes())
+            {
+                break;
+            }
         }
+        return count == 0 ? -1 : count;
     }
 
     /**
-     * Fill up with more bytes (if there are any required) and <b>always</b> reset the byte position.
+     * Fill the buffer directly from the encoded words. This works in the same way for heap and direct buffers.
+     * 
+     * @return the number of bytes put in the buffer or -1 at the end of the stream
      */
-    private void getMoreBytes() throws IOException
+    public int read(ByteBuffer dst) throws IOException
     {
-        bytePosition = 0;
+        if(!dst.hasRemaining())
+        {
+            return 0;
+        }
         
-        if (bytesSoFar == length)
+        int count = 0;
+        while(dst.hasRemaining())
         {
-            currentBytes = null;
+            if(spacePending)
+            {
+                spacePending = false;
+                dst.put(SPACE);
+                count++;
+            }
+            else if((currentBytes != null) && (bytePosition < currentEnd))
+            {
+                int toCopy = Math.min(dst.remaining(), currentEnd - bytePosition);
+                dst.put(currentBytes, bytePosition, toCopy);
+                bytePosition += toCopy;
+                count += toCopy;
+            }
+            else if(padding > 0)
+            {
+                int toFill = (int)Math.min(dst.remaining(), padding);
+                for(int i = 0; i < toFill; i++)
+                {
+                    dst.put(SPACE);
+                }
+                padding -= toFill;
+                count += toFill;
+            }
+            else if(!getMoreBytes())
+            {
+                break;
+            }
         }
-        else
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * Write the rest of the stream to an output stream. Words are generated straight into one large block at a time
+     * and each full block is handed to the output stream in a single write. The block is reused by the thread for
+     * later transfers, so the output stream must not keep it. The output stream is not closed.
+     * 
+     * @return the number of bytes written
+     */
+    public long transferTo(OutputStream out) throws IOException
+    {
+        byte[] block = TransferBuffers.takeBlock();
+        long written = 0;
+        try
         {
-            StringBuffer buffer = new StringBuffer();
-            int bufferByteCount = 0;
-            if(pad)
+            int count;
+            while((count = read(block, 0, block.length)) != -1)
             {
-                buffer.append(" ");
-                bufferByteCount++;
+                out.write(block, 0, count);
+                written += count;
             }
-            else
+        }
+        finally
+        {
+            TransferBuffers.release(block);
+        }
+        return written;
+    }
+
+    /**
+     * Skip by generating the words without copying them anywhere.
+     */
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long skipped = 0;
+        while(skipped < n)
+        {
+            if(spacePending)
             {
-                pad = true;
+                spacePending = false;
+                skipped++;
             }
-            
-            String word = wg.getWord(random.nextDouble());
-            if(word == null)
+            else if((currentBytes != null) && (bytePosition < currentEnd))
             {
-                throw new IOException("Word generation failed");
+                int toSkip = (int)Math.min(n - skipped, currentEnd - bytePosition);
+                bytePosition += toSkip;
+                skipped += toSkip;
             }
-            buffer.append(word);
-            bufferByteCount += word.getBytes("UTF-8").length;
-            
-            if(bytesSoFar + bufferByteCount > length)
+            else if(padding > 0)
             {
-                // pad with spaces...
-                currentBytes = emptyString((int)(length - bytesSoFar)).getBytes("UTF-8");
-                bytesSoFar += length - bytesSoFar;
+                long toSkip = Math.min(n - skipped, padding);
+                padding -= toSkip;
+                skipped += toSkip;
             }
-            else
+            else if(!getMoreBytes())
             {
-                currentBytes = buffer.toString().getBytes("UTF-8");
-                bytesSoFar += bufferByteCount;
+                break;
             }
         }
+        return skipped;
     }
 
-    private String emptyString(int length)
+    /**
+     * Move on to the next word (if there are any required) and <b>always</b> reset the byte position.
+     * 
+     * @return false at the end of the stream
+     */
+    private boolean getMoreBytes() throws IOException
     {
-        StringBuffer buffer = new StringBuffer(length);
-        for(int i = 0; i < length; i++)
+        bytePosition = 0;
+        currentBytes = null;
+        currentEnd = 0;
+        
+        if (bytesSoFar == length)
         {
-            buffer.append(" ");
+            return false;
         }
-        return buffer.toString();
+        
+        int position = sampler.getWordIndex(random.nextDouble());
+        if(position < 0)
+        {
+            throw new IOException("Word generation failed");
+        }
+        int wordLength = wg.getWordLength(position);
+        int wordByteCount = pad ? wordLength + 1 : wordLength;
+        
+        if(bytesSoFar + wordByteCount > length)
+        {
+            // pad with spaces...
+            padding = length - bytesSoFar;
+            bytesSoFar = length;
+        }
+        else
+        {
+            spacePending = pad;
+            pad = true;
+            currentBytes = wg.getArena();
+            bytePosition = wg.getWordOffset(position);
+            currentEnd = bytePosition + wordLength;
+            bytesSoFar += wordByteCount;
+        }
+        return true;
     }
 }
@@ -20,6 +20,11 @@ package org.alfresco.textgen;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Provides an input stream of text generated at random from real words and supported creating query text for use 
@@ -41,6 +46,32 @@ public interface RandomTextProvider
      */
     public InputStream getInputStream(long seed, long length, String...strings) throws IOException;
     
+    /**
+     * Generate a repeatable channel made up of random words with the same content as {@link #getInputStream(long, long, String...)}
+     * By default the input stream is wrapped; implementations can write into the channel's buffers directly instead.
+     * 
+     * @param seed - the initial seed for the state of the generator - to give repeatable content
+     * @param length - the length of content required in bytes
+     * @param strings - an optional array of strings, as for {@link #getInputStream(long, long, String...)}
+     */
+    public default ReadableByteChannel getChannel(long seed, long length, String...strings) throws IOException
+    {
+        return Channels.newChannel(getInputStream(seed, length, strings));
+    }
+    
+    /**
+     * Generate the content of {@link #getInputStream(long, long, String...)} as chars. By default the input stream is
+     * decoded as UTF-8; implementations can copy chars from their words directly instead.
+     * 
+     * @param seed - the initial seed for the state of the generator - to give repeatable content
+     * @param length - the length of the equivalent content in bytes, not chars
+     * @param strings - an optional array of strings, as for {@link #getInputStream(long, long, String...)}
+     */
+    public default Reader getReader(long seed, long length, String...strings) throws IOException
+    {
+        return new InputStreamReader(getInputStream(seed, length, strings), StandardCharsets.UTF_8);
+    }
+    
     /**
      * Generate a query string that exactly matches the specific random content in some way
      * 
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A generated document as a {@link Flow.Publisher} of byte buffers, for reactive clients. The content is the same as
+ * {@link RandomTextProvider#getInputStream(long, long, String...)} for the same seed, length and strings, and each
+ * subscriber receives the whole document from the start.
+ * <p>
+ * Nothing is generated until it is requested: each buffer is filled on the thread that signals demand, just before
+ * it is passed to {@link Flow.Subscriber#onNext(Object)}, so no thread ever blocks waiting for a subscriber. Each
+ * buffer belongs to the subscriber once it has been passed on, so it can be consumed asynchronously. A subscriber that
+ * has finished with a buffer can hand it back with {@link #release(ByteBuffer)}; a small pool of released buffers is
+ * refilled before any new direct buffer is allocated.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class RandomTextPublisher implements Flow.Publisher<ByteBuffer>
+{
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+    
+    private final WordGenerator wg;
+    
+    private final WordSampler sampler;
+    
+    private final long seed;
+    
+    private final long length;
+    
+    private final String[] strings;
+    
+    private final int bufferSize;
+    
+    /**
+     * Buffers released by subscribers, ready to be filled again
+     */
+    private final ArrayBlockingQueue<ByteBuffer> released;
+    
+    /**
+     * @param bufferSize - the most bytes in each buffer
+     * @param bufferCount - the most released buffers kept for reuse
+     */
+    public RandomTextPublisher(WordGenerator wg, WordSampler sampler, long seed, long length, String[] strings, int bufferSize, int bufferCount)
+    {
+        if((bufferSize <= 0) || (bufferCount <= 0))
+        {
+            throw new IllegalArgumentException("Buffer size and count must be positive: " + bufferSize + ", " + bufferCount);
+        }
+        this.wg = wg;
+        this.sampler = sampler;
+        this.seed = seed;
+        this.length = length;
+        this.strings = strings;
+        this.bufferSize = (int)Math.min(bufferSize, Math.max(length, 1));
+        released = new ArrayBlockingQueue<ByteBuffer>(bufferCount);
+    }
+    
+    public long getLength()
+    {
+        return length;
+    }
+    
+    /**
+     * Hand back a buffer from {@link Flow.Subscriber#onNext(Object)} that the subscriber has finished with, so it can
+     * be filled again for this or another subscription. The buffer must not be used or released again afterwards.
+     * Buffers that were not from this publisher, or that do not fit in the pool, are left to be garbage collected.
+     */
+    public void release(ByteBuffer buffer)
+    {
+        if((buffer != null) && buffer.isDirect() && (buffer.capacity() == bufferSize))
+        {
+            released.offer(buffer);
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber)
+    {
+        if(subscriber == null)
+        {
+            throw new NullPointerException("A subscriber is required");
+        }
+        
+        RandomTextInputStream stream;
+        try
+        {
+            stream = new RandomTextInputStream(wg, sampler, seed, length, strings);
+        }
+        catch(IOException | RuntimeException e)
+        {
+            subscriber.onSubscribe(new Flow.Subscription()
+            {
+                public void request(long n)
+                {
+                }
+                
+                public void cancel()
+                {
+                }
+            });
+            subscriber.onError(e);
+            return;
+        }
+        
+        TextSubscription subscription = new TextSubscription(subscriber, stream);
+        subscriber.onSubscribe(subscription);
+        // An empty document completes without any demand
+        subscription.drain();
+    }
+    
+    private class TextSubscription implements Flow.Subscription
+    {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        
+        private final AtomicLong requested = new AtomicLong();
+        
+        /**
+         * Counts signals that arrived while draining, so only one thread drains at a time and none recurses
+         */
+        private final AtomicInteger work = new AtomicInteger();
+        
+        private RandomTextInputStream stream;
+        
+        private long emitted = 0;
+        
+        private volatile boolean cancelled = false;
+        
+        /**
+         * An error to signal from the drain loop, so it is never signalled at the same time as onNext
+         */
+        private volatile Throwable error;
+        
+        TextSubscription(Flow.Subscriber<? super ByteBuffer> subscriber, RandomTextInputStream stream)
+        {
+            this.subscriber = subscriber;
+            this.stream = stream;
+        }
+
+        @Override
+        public void request(long n)
+        {
+            if(n <= 0)
+            {
+                error = new IllegalArgumentException("Demand must be positive: " + n);
+                drain();
+                return;
+            }
+            
+            long current;
+            do
+            {
+                current = requested.get();
+                if(current == Long.MAX_VALUE)
+                {
+                    break;
+                }
+            }
+            while(!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            drain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            drain();
+        }
+        
+        void drain()
+        {
+            if(work.getAndIncrement() != 0)
+            {
+                return;
+            }
+            
+            int missed = 1;
+            do
+            {
+                Throwable failure = error;
+                if((failure != null) && !cancelled)
+                {
+                    cancelled = true;
+                    release();
+                    subscriber.onError(failure);
+                    return;
+                }
+                if(cancelled)
+                {
+                    release();
+                    return;
+                }
+                
+                long demand = requested.get();
+                long sent = 0;
+                while((stream != null) && (sent != demand) && (emitted < length) && !cancelled && (error == null))
+                {
+                    ByteBuffer buffer = nextBuffer();
+                    int count;
+                    try
+                    {
+                        count = stream.read(buffer);
+                    }
+                    catch(IOException e)
+                    {
+                        cancelled = true;
+                        release();
+                        subscriber.onError(e);
+                        return;
+                    }
+                    if(count == -1)
+                    {
+                        break;
+                    }
+                    buffer.flip();
+                    emitted += count;
+                    sent++;
+                    subscriber.onNext(buffer);
+                }
+                
+                if((stream != null) && (emitted == length) && !cancelled && (error == null))
+                {
+                    cancelled = true;
+                    release();
+                    subscriber.onComplete();
+                    return;
+                }
+                
+                if((sent != 0) && (demand != Long.MAX_VALUE))
+                {
+                    requested.addAndGet(-sent);
+                }
+                missed = work.addAndGet(-missed);
+            }
+            while(missed != 0);
+        }
+        
+        /**
+         * A released buffer, or a new one if there are none, never one the subscriber may still hold
+         */
+        private ByteBuffer nextBuffer()
+        {
+            ByteBuffer buffer = released.poll();
+            if(buffer == null)
+            {
+                return ByteBuffer.allocateDirect(bufferSize);
+            }
+            buffer.clear();
+            return buffer;
+        }
+        
+        private void release()
+        {
+            stream = null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A generated document as chars, copied straight from the words of the lexicon without encoding them to UTF-8 and
+ * decoding them again.
+ * <p>
+ * The length is the length of the document in encoded UTF-8 bytes, as for
+ * {@link RandomTextProvider#getInputStream(long, long, String...)}, not a number of chars. The words, the spaces and
+ * the padding are the same, so the reader returns exactly the chars of the byte stream decoded as UTF-8. A document
+ * with words outside ASCII therefore has fewer chars than its length.
+ * <p>
+ * A reader is not thread safe.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class RandomTextReader extends Reader
+{
+    private final WordGenerator.WordChars words;
+    
+    private final WordSequence sequence;
+    
+    private char[] current;
+    
+    private int position;
+    
+    private int end;
+    
+    private boolean pad;
+    
+    private boolean spacePending = false;
+    
+    private boolean finished = false;
+    
+    private long padding = 0;
+    
+    RandomTextReader(WordGenerator wg, WordSampler sampler, long seed, long length, String[] strings)
+    {
+        words = wg.getWordChars();
+        sequence = new WordSequence(wg, sampler);
+        sequence.reset(seed, length, strings);
+        
+        String fixedStrings = sequence.getFixedStrings();
+        if(fixedStrings != null)
+        {
+            // As the byte stream would decode, with any unpaired surrogate replaced
+            current = new String(fixedStrings.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8).toCharArray();
+            end = current.length;
+            pad = true;
+        }
+        else
+        {
+            current = words.chars;
+            end = 0;
+            pad = false;
+        }
+        position = 0;
+    }
+    
+    @Override
+    public int read(char[] cbuf, int off, int len)
+    {
+        if((off < 0) || (len < 0) || (len > cbuf.length - off))
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if(len == 0)
+        {
+            return 0;
+        }
+        
+        int count = 0;
+        while(count < len)
+        {
+            if(spacePending)
+            {
+                cbuf[off + count++] = ' ';
+                spacePending = false;
+            }
+            else if(position < end)
+            {
+                int copy = Math.min(end - position, len - count);
+                System.arraycopy(current, position, cbuf, off + count, copy);
+                position += copy;
+                count += copy;
+            }
+            else if(finished)
+            {
+                if(padding == 0)
+                {
+                    break;
+                }
+                int spaces = (int)Math.min(padding, len - count);
+                Arrays.fill(cbuf, off + count, off + count + spaces, ' ');
+                padding -= spaces;
+                count += spaces;
+            }
+            else
+            {
+                int next = sequence.next();
+                if(next == -1)
+                {
+                    finished = true;
+                    padding = sequence.getPadding();
+                }
+                else
+                {
+                    spacePending = pad;
+                    pad = true;
+                    current = words.chars;
+                    position = words.offsets[next];
+                    end = words.offsets[next + 1];
+                }
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+    
+    @Override
+    public boolean ready()
+    {
+        return true;
+    }
+    
+    @Override
+    public void close()
+    {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+/**
+ * The versions of word selection available. The version is part of the identity of generated content: the same seed
+ * gives different text with different versions.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public enum SamplerVersion
+{
+    /**
+     * Binary search of the cumulative frequencies - the content generated by all earlier releases
+     */
+    LEGACY
+    {
+        @Override
+        public WordSampler getSampler(WordGenerator wordGenerator)
+        {
+            return wordGenerator;
+        }
+    },
+    
+    /**
+     * Constant time selection using an alias table
+     */
+    ALIAS
+    {
+        @Override
+        public WordSampler getSampler(WordGenerator wordGenerator)
+        {
+            return wordGenerator.getAliasSampler();
+        }
+    };
+    
+    public abstract WordSampler getSampler(WordGenerator wordGenerator);
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Load a lexicon from the rest of an input stream. The stream is read to the end but not closed, so it can only be
+ * loaded once.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class StreamLexiconLoader implements LexiconLoader
+{
+    private final InputStream is;
+    
+    public StreamLexiconLoader(InputStream is)
+    {
+        this.is = is;
+    }
+
+    @Override
+    public WordGenerator load() throws IOException
+    {
+        return LexiconParser.read(ByteBuffer.wrap(is.readAllBytes()));
+    }
+}
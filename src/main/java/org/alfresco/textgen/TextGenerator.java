@@ -18,14 +18,15 @@
  */
 package org.alfresco.textgen;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
 import java.util.Random;
-
-import org.springframework.core.io.ClassPathResource;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author Andy Hind
@@ -33,111 +34,246 @@ import org.springframework.core.io.ClassPathResource;
  */
 public class TextGenerator implements RandomTextProvider
 {
-    WordGenerator wordGenerator = new WordGenerator();
+    final WordGenerator wordGenerator;
+    
+    final SamplerVersion samplerVersion;
     
+    /**
+     * Use the lexicon at the given class path location. The words are loaded once and shared with every other
+     * generator for the same location.
+     * 
+     * @see LexiconCache
+     */
     public TextGenerator(String configPath)
     {
-        ClassPathResource cpr = new ClassPathResource(configPath);
-        if (!cpr.exists())
+        this(configPath, SamplerVersion.LEGACY);
+    }
+    
+    /**
+     * Use the lexicon at the given class path location. The words are loaded once and shared with every other
+     * generator for the same location.
+     * 
+     * @param samplerVersion - how words are selected; content is only repeatable for the same version
+     * @see LexiconCache
+     */
+    public TextGenerator(String configPath, SamplerVersion samplerVersion)
+    {
+        this(LexiconCache.getWordGenerator(configPath), samplerVersion);
+    }
+    
+    /**
+     * Use an existing word generator, such as one loaded from a {@link BinaryLexicon}.
+     */
+    public TextGenerator(WordGenerator wordGenerator)
+    {
+        this(wordGenerator, SamplerVersion.LEGACY);
+    }
+    
+    /**
+     * Use an existing word generator, such as one loaded from a {@link BinaryLexicon}.
+     * 
+     * @param samplerVersion - how words are selected; content is only repeatable for the same version
+     */
+    public TextGenerator(WordGenerator wordGenerator, SamplerVersion samplerVersion)
+    {
+        this.wordGenerator = wordGenerator;
+        this.samplerVersion = samplerVersion;
+    }
+    
+    /**
+     * Load the words from a lexicon on the class path, in tab separated or binary form.
+     * 
+     * @see ClassPathLexiconLoader
+     */
+    static WordGenerator loadWordGenerator(String configPath)
+    {
+        try
+        {
+            return new ClassPathLexiconLoader(configPath).load();
+        }
+        catch (IOException e)
         {
-            throw new RuntimeException("No resource found: " + configPath);
+            throw new RuntimeException("Failed to load resource " + configPath, e);
         }
-        InputStream is = null;
-        InputStreamReader r = null;
-        BufferedReader br = null;
+    }
+
+   
+    /**
+     * The stream can be {@link RandomTextInputStream#reset(long, long, String...) reset} to generate further
+     * documents without allocating a new one each time.
+     */
+    public RandomTextInputStream getInputStream(long seed, long length, String... strings) throws IOException
+    {
+        return new RandomTextInputStream(wordGenerator, getWordSampler(), seed, length, strings);
+    }
+
+    public ReadableByteChannel getChannel(long seed, long length, String... strings) throws IOException
+    {
+        return new RandomTextChannel(new RandomTextInputStream(wordGenerator, getWordSampler(), seed, length, strings));
+    }
+    
+    /**
+     * The length is in encoded bytes, so the reader has the same content as the input stream decoded as UTF-8. The
+     * chars are copied from the words without encoding and decoding them.
+     * 
+     * @see RandomTextReader
+     */
+    public RandomTextReader getReader(long seed, long length, String... strings)
+    {
+        return new RandomTextReader(wordGenerator, getWordSampler(), seed, length, strings);
+    }
+    
+    /**
+     * Get the tokens of a document as ids, without encoding any text. The tokens are those found by splitting the
+     * text from {@link #getInputStream(long, long, String...)} at spaces.
+     * 
+     * @see WordIdStream
+     */
+    public WordIdStream getWordIdStream(long seed, long length, String... strings)
+    {
+        return new WordIdStream(wordGenerator, getWordSampler(), seed, length, strings, false);
+    }
+    
+    /**
+     * Get the lexicon entries that make up a document as ids, without encoding any text. An entry may be empty or
+     * hold several tokens.
+     * 
+     * @see WordIdStream
+     */
+    public WordIdStream getEntryIdStream(long seed, long length, String... strings)
+    {
+        return new WordIdStream(wordGenerator, getWordSampler(), seed, length, strings, true);
+    }
+    
+    /**
+     * Generate a document for reactive consumers, with buffers of the default size.
+     * 
+     * @see RandomTextPublisher
+     */
+    public RandomTextPublisher getPublisher(long seed, long length, String... strings)
+    {
+        return getPublisher(seed, length, RandomTextPublisher.DEFAULT_BUFFER_SIZE, RandomTextPublisher.DEFAULT_BUFFER_COUNT, strings);
+    }
+    
+    /**
+     * Generate a document for reactive consumers.
+     * 
+     * @param bufferSize - the most bytes in each buffer
+     * @param bufferCount - the most buffers released by subscribers that are kept for reuse
+     * @see RandomTextPublisher
+     */
+    public RandomTextPublisher getPublisher(long seed, long length, int bufferSize, int bufferCount, String... strings)
+    {
+        return new RandomTextPublisher(wordGenerator, getWordSampler(), seed, length, strings, bufferSize, bufferCount);
+    }
+    
+    /**
+     * Generate content straight into a channel, such as a file or socket, through a direct buffer reused by the thread.
+     * 
+     * @return the number of bytes written
+     */
+    public long transferTo(long seed, long length, WritableByteChannel target, String... strings) throws IOException
+    {
+        return writeTo(seed, length, target, strings).getBytesWritten();
+    }
+    
+    /**
+     * Push generated content into a channel, such as a file or socket, through a direct buffer reused by the thread.
+     * The channel is not closed.
+     * 
+     * @return the bytes written and the time taken
+     */
+    public WriteStatistics writeTo(long seed, long length, WritableByteChannel target, String... strings) throws IOException
+    {
+        long start = System.nanoTime();
+        RandomTextInputStream stream = new RandomTextInputStream(wordGenerator, getWordSampler(), seed, length, strings);
+        ByteBuffer buffer = TransferBuffers.takeDirect();
+        long written = 0;
         try
         {
-            int lineNumber = 0;
-            is = cpr.getInputStream();
-            r = new InputStreamReader(is, "UTF-8");
-            br = new BufferedReader(r);
-            
-            
-            String line;
-            while((line = br.readLine()) != null)
+            while(stream.read(buffer) != -1)
             {
-                lineNumber++;
-                if(lineNumber == 1)
+                buffer.flip();
+                while(buffer.hasRemaining())
                 {
-                    // skip header
-                    continue;
-                }
-                String[] split = line.split("\t");
-                
-                if(split.length != 7)
-                {
-                    //System.out.println("Skipping "+lineNumber);
-                    continue;
-                }
-                
-                String word = split[1].replaceAll("\\*", "");
-                String mode = split[3].replaceAll("\\*", "");
-                long frequency = Long.parseLong(split[4].replaceAll("#", "").trim());
-                
-                // Single varient
-                if(mode.equals(":"))
-                {
-                    if(!ignore(word))
-                    {
-                        wordGenerator.addWord(splitAlternates(word),  frequency == 0 ? 1 : frequency);
-                    }
-                }
-                else
-                {
-                    if(word.equals("@"))
-                    {
-                        // varient
-                        if(!ignore(mode))
-                        {
-                            wordGenerator.addWord(splitAlternates(mode),  frequency == 0 ? 1 : frequency);
-                        }
-                    }
-                    else
-                    {
-                        //System.out.println("Skipping totla and using varients for " + word + " @ " + lineNumber);
-                    }
+                    written += target.write(buffer);
                 }
+                buffer.clear();
             }
         }
-        catch (IOException e)
-        {
-            throw new RuntimeException("Failed to load resource " + configPath);
-        }
         finally
         {
-            if (br != null)
-            {
-                try { br.close(); } catch (Exception e) {}
-            }
-            if (r != null)
-            {
-                try { r.close(); } catch (Exception e) {}
-            }
-            if (is != null)
-            {
-                try { is.close(); } catch (Exception e) {}
-            }
+            TransferBuffers.release(buffer);
         }
+        return new WriteStatistics(written, System.nanoTime() - start);
     }
-
-    private String splitAlternates(String word)
+    
+    /**
+     * Push generated content into an output stream in large blocks, without the copy through a separate buffer that
+     * reading from {@link #getInputStream(long, long, String...)} needs. The output stream is not closed.
+     * 
+     * @return the bytes written and the time taken
+     * @see RandomTextInputStream#transferTo(OutputStream)
+     */
+    public WriteStatistics writeTo(long seed, long length, OutputStream target, String... strings) throws IOException
     {
-        String[] alternates = word.split("/");
-        return alternates[0].trim();
-               
+        long start = System.nanoTime();
+        long written = new RandomTextInputStream(wordGenerator, getWordSampler(), seed, length, strings).transferTo(target);
+        return new WriteStatistics(written, System.nanoTime() - start);
     }
-
-    private boolean ignore(String word)
+    
+    /**
+     * Get the same content as {@link #getInputStream(long, long, String...)} through a cache, so documents that are
+     * read again are copied from memory instead of being generated again.
+     * 
+     * @param cache - the chunks already generated, which may be shared with other streams and generators
+     * @see CachedRandomTextInputStream
+     */
+    public CachedRandomTextInputStream getCachedInputStream(ChunkCache cache, long seed, long length, String... strings) throws IOException
     {
-        return word.contains("~") || word.contains("'");
+        return new CachedRandomTextInputStream(wordGenerator, samplerVersion, cache, seed, length, strings);
     }
-
-   
-    public InputStream getInputStream(long seed, long length, String... strings) throws IOException
+    
+    /**
+     * Generate a repeatable, seekable input stream made up of chunks of random words.
+     * 
+     * @see ChunkedRandomTextInputStream
+     */
+    public ChunkedRandomTextInputStream getChunkedInputStream(long seed, long length, String... strings) throws IOException
     {
-        return new RandomTextInputStream(wordGenerator, seed, length, strings);
+        return getChunkedInputStream(seed, length, ChunkedRandomTextInputStream.DEFAULT_CHUNK_SIZE, strings);
+    }
+    
+    /**
+     * Generate a repeatable, seekable input stream made up of chunks of random words.
+     * 
+     * @param chunkSize - the size of each independently generated chunk; part of the identity of the content
+     * @see ChunkedRandomTextInputStream
+     */
+    public ChunkedRandomTextInputStream getChunkedInputStream(long seed, long length, int chunkSize, String... strings) throws IOException
+    {
+        return new ChunkedRandomTextInputStream(wordGenerator, getWordSampler(), seed, length, chunkSize, strings);
+    }
+    /**
+     * Get a generator that produces chunked documents in parallel using the given pool.
+     * 
+     * @see ParallelTextGenerator
+     */
+    public ParallelTextGenerator getParallelTextGenerator(ForkJoinPool pool)
+    {
+        return new ParallelTextGenerator(wordGenerator, getWordSampler(), pool);
+    }
+    
+    /**
+     * Get a generator that produces many documents concurrently on the given executor.
+     * 
+     * @see BatchTextGenerator
+     * @see BatchTextGenerator#newDefaultExecutor()
+     */
+    public BatchTextGenerator getBatchTextGenerator(Executor executor)
+    {
+        return new BatchTextGenerator(wordGenerator, getWordSampler(), executor);
     }
-
    
     public String generateQueryString(long seed, int words, int wordLimit)
     {
@@ -155,17 +291,29 @@ public class TextGenerator implements RandomTextProvider
             start =  random.nextInt(wordLimit - words);
         }
         
-        random.setSeed(seed);
-       
-        for(int i = 0; i < start; i++)
-        {
-            random.nextDouble();
-        }
+        return getWordsAt(seed, start, words);
+    }
+    
+    /**
+     * Get the words at a given position in the content generated for a seed, without generating the words before
+     * them. The position counts words after any fixed strings, so it is the same whatever strings were used. Finding
+     * the position takes time proportional to the log of the position.
+     * 
+     * @param seed - the seed of the generated content
+     * @param position - the number of words to skip
+     * @param words - the number of words required
+     * @return the words separated by single spaces
+     */
+    public String getWordsAt(long seed, long position, int words)
+    {
+        Random random = new Random();
+        RandomJump.seekDoubles(random, seed, position);
         
+        WordSampler sampler = getWordSampler();
         StringBuffer buffer = new StringBuffer();
         for(int i = 0; i < words; i++)
         {
-            String word = wordGenerator.getWord(random.nextDouble());
+            String word = wordGenerator.getWordAt(sampler.getWordIndex(random.nextDouble()));
             if(buffer.length() > 0)
             {
                 buffer.append(" ");
@@ -189,15 +337,85 @@ public class TextGenerator implements RandomTextProvider
         return wordGenerator;
     }
     
+    /**
+     * @return the version used to select words
+     */
+    public SamplerVersion getSamplerVersion()
+    {
+        return samplerVersion;
+    }
+    
+    WordSampler getWordSampler()
+    {
+        return samplerVersion.getSampler(wordGenerator);
+    }
+    
+    /**
+     * Get a calculator for the checksums of documents from this generator, to verify stored content.
+     * 
+     * @see ChecksumCalculator
+     */
+    public ChecksumCalculator getChecksumCalculator()
+    {
+        return new ChecksumCalculator(wordGenerator, getWordSampler());
+    }
+    
+    /**
+     * Work out the length, CRC-32C and SHA-256 of a document without holding its content.
+     */
+    public DocumentChecksum getChecksum(long seed, long length, String... strings) throws IOException
+    {
+        return getChecksumCalculator().checksum(seed, length, strings);
+    }
+    
+    /**
+     * Get an analytic estimate of term frequencies in a corpus generated from this lexicon.
+     * 
+     * @param documentLength - the length in bytes of each document
+     * @param documents - the number of documents in the corpus
+     * @see FrequencyEstimator
+     */
+    public FrequencyEstimator getFrequencyEstimator(long documentLength, long documents)
+    {
+        return new FrequencyEstimator(wordGenerator, documentLength, documents);
+    }
+    
+    /**
+     * Get an oracle for the exact matches of query terms in the content from this generator.
+     * 
+     * @see CorpusOracle
+     */
+    public CorpusOracle getCorpusOracle()
+    {
+        return new CorpusOracle(wordGenerator, getWordSampler());
+    }
+    
+    /**
+     * Get a repeatable workload of phrase queries built from words with limited frequency.
+     * 
+     * @see QueryWorkload
+     */
+    public QueryWorkload getQueryWorkload(String field, int min_fpmw, int max_fpmw, int min_words, int max_words, long seed)
+    {
+        return new QueryWorkload(wordGenerator, field, min_fpmw, max_fpmw, min_words, max_words, seed);
+    }
+    
+    /**
+     * Print queries to standard out. The queries are the same on every call, from a generator seeded with zero, and
+     * are the same as they have always been, so query sets pinned to a corpus still apply. Within a field each query
+     * starts with a space, as it always has.
+     * 
+     * @deprecated use {@link #getQueryWorkload(String, int, int, int, int, long)}, which gives different queries
+     */
+    @Deprecated
     public void generateQueries(String field, int min_fpmw, int max_fpmw, int min_words, int max_words, int count)
     {
         Random random = new Random();
         random.setSeed(0);
-       
-      
+        
         for(int j = 0; j < count; j++)
         {
-            int words  = min_words + random.nextInt(max_words - min_words);
+            int words = min_words + random.nextInt(max_words - min_words);
             StringBuilder builder = new StringBuilder();
             if(field != null)
             {
@@ -206,24 +424,23 @@ public class TextGenerator implements RandomTextProvider
             for(int i = 0; i < words; i++)
             {
                 int fpmw = min_fpmw + random.nextInt(max_fpmw - min_fpmw);
-                ArrayList<String> choice = wordGenerator.getWordsLessFrequent(fpmw);
+                // A view over the frequency index, so nothing is copied for each word
+                List<String> choice = wordGenerator.getWordsLessFrequent(fpmw);
                 if(builder.length() > 0)
                 {
                     builder.append(" ");
                 }
                 builder.append(getSingleWord(choice, random));
-                
             }
             if(field != null)
             {
                 builder.append("\"");
             }
             System.out.println(builder.toString());
-        }   
-       
+        }
     }
     
-    private String getSingleWord(ArrayList<String> choice, Random random)
+    private String getSingleWord(List<String> choice, Random random)
     {
         String candidate;
         NEXT : for(int i = 0; i < 100000; i++)
@@ -241,6 +458,4 @@ public class TextGenerator implements RandomTextProvider
         }
         return "";
     }
-    
-    
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The distinct tokens in the entries of a {@link WordGenerator}, with the token ids of every entry worked out up
+ * front. A token is a run of text between spaces, as {@link CorpusOracle} splits text, so an entry such as "according
+ * to" has two tokens and an empty entry has none.
+ * <p>
+ * Tokens are numbered from zero in the order they are first found. Each token is held as the offset and length of
+ * its first occurrence in the arena of the word generator, so no token text is copied. Tokens are looked up by text
+ * in an open addressing hash table.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+final class TokenVocabulary
+{
+    private static final byte SPACE = ' ';
+    
+    private final byte[] arena;
+    
+    private final int[] tokenOffsets;
+    
+    private final int[] tokenLengths;
+    
+    private final int tokenCount;
+    
+    /**
+     * The token id plus one in each slot, with zero for an empty slot
+     */
+    private final int[] table;
+    
+    /**
+     * The token ids of every entry, end to end
+     */
+    private final int[] entryTokens;
+    
+    /**
+     * The offset of the tokens of each entry in the entry tokens, with the end of the last entry as the final offset
+     */
+    private final int[] entryTokenOffsets;
+    
+    TokenVocabulary(byte[] arena, int[] offsets, int wordCount)
+    {
+        this.arena = arena;
+        
+        int occurrences = 0;
+        for(int i = 0; i < wordCount; i++)
+        {
+            occurrences += countTokens(arena, offsets[i], offsets[i + 1]);
+        }
+        
+        int[] ids = new int[occurrences];
+        int[] starts = new int[occurrences];
+        int[] lengths = new int[occurrences];
+        int[] slots = new int[Math.max(Integer.highestOneBit(Math.max(occurrences, 1)) * 4, 16)];
+        int count = 0;
+        int next = 0;
+        entryTokenOffsets = new int[wordCount + 1];
+        for(int i = 0; i < wordCount; i++)
+        {
+            entryTokenOffsets[i] = next;
+            int start = offsets[i];
+            int end = offsets[i + 1];
+            for(int j = start; j <= end; j++)
+            {
+                if((j == end) || (arena[j] == SPACE))
+                {
+                    if(j > start)
+                    {
+                        int slot = find(slots, arena, starts, lengths, arena, start, j - start);
+                        if(slots[slot] == 0)
+                        {
+                            starts[count] = start;
+                            lengths[count] = j - start;
+                            slots[slot] = ++count;
+                        }
+                        ids[next++] = slots[slot] - 1;
+                    }
+                    start = j + 1;
+                }
+            }
+        }
+        entryTokenOffsets[wordCount] = next;
+        
+        entryTokens = ids;
+        tokenOffsets = Arrays.copyOf(starts, count);
+        tokenLengths = Arrays.copyOf(lengths, count);
+        tokenCount = count;
+        table = slots;
+    }
+    
+    private static int countTokens(byte[] bytes, int start, int end)
+    {
+        int count = 0;
+        for(int j = start; j <= end; j++)
+        {
+            if((j == end) || (bytes[j] == SPACE))
+            {
+                if(j > start)
+                {
+                    count++;
+                }
+                start = j + 1;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Find the slot that holds the token or the empty slot where it would go
+     */
+    private static int find(int[] slots, byte[] arena, int[] starts, int[] lengths, byte[] bytes, int offset, int length)
+    {
+        int mask = slots.length - 1;
+        int slot = hash(bytes, offset, length) & mask;
+        while(slots[slot] != 0)
+        {
+            int id = slots[slot] - 1;
+            if(Arrays.equals(arena, starts[id], starts[id] + lengths[id], bytes, offset, offset + length))
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private static int hash(byte[] bytes, int offset, int length)
+    {
+        int hash = 1;
+        for(int i = offset; i < offset + length; i++)
+        {
+            hash = 31 * hash + bytes[i];
+        }
+        // Spread the bits, as the table is indexed by the low bits
+        return hash ^ (hash >>> 16);
+    }
+    
+    int getTokenCount()
+    {
+        return tokenCount;
+    }
+    
+    /**
+     * @return the id of the token with the given UTF-8 encoding or -1 if no entry has it as a token
+     */
+    int getTokenId(byte[] bytes, int offset, int length)
+    {
+        int slot = find(table, arena, tokenOffsets, tokenLengths, bytes, offset, length);
+        return table[slot] - 1;
+    }
+    
+    String getToken(int id)
+    {
+        return new String(arena, tokenOffsets[id], tokenLengths[id], StandardCharsets.UTF_8);
+    }
+    
+    byte[] getTokenBytes(int id)
+    {
+        return Arrays.copyOfRange(arena, tokenOffsets[id], tokenOffsets[id] + tokenLengths[id]);
+    }
+    
+    /**
+     * The token ids of every entry end to end, which are shared and must not be modified
+     */
+    int[] getEntryTokens()
+    {
+        return entryTokens;
+    }
+    
+    /**
+     * The offset of the first token of the entry at the given position in the {@link #getEntryTokens() entry
+     * tokens}; the tokens of the entry end at the offset for the next position
+     */
+    int getEntryTokenOffset(int position)
+    {
+        return entryTokenOffsets[position];
+    }
+    
+    /**
+     * An estimate of the heap used, in bytes
+     */
+    long getMemoryUsage()
+    {
+        return 4L * (entryTokens.length + entryTokenOffsets.length + tokenOffsets.length + tokenLengths.length + table.length) + 128;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A transfer buffer for each thread, so pushing documents to a channel or stream does not allocate a new one for
+ * each document. Direct buffers in particular are slow to allocate and only freed after a garbage collection.
+ * <p>
+ * A buffer is taken from the thread while it is in use and given back afterwards, so a transfer that starts another
+ * on the same thread, such as from inside a channel, gets a buffer of its own.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+final class TransferBuffers
+{
+    static final int SIZE = 64 * 1024;
+    
+    private static final ThreadLocal<ByteBuffer> DIRECT = new ThreadLocal<ByteBuffer>();
+    
+    private static final ThreadLocal<byte[]> BLOCK = new ThreadLocal<byte[]>();
+    
+    private TransferBuffers()
+    {
+    }
+    
+    /**
+     * @return a cleared direct buffer of {@link #SIZE} bytes, to be given back with {@link #release(ByteBuffer)}
+     */
+    static ByteBuffer takeDirect()
+    {
+        ByteBuffer buffer = DIRECT.get();
+        if(buffer == null)
+        {
+            return ByteBuffer.allocateDirect(SIZE);
+        }
+        DIRECT.set(null);
+        buffer.clear();
+        return buffer;
+    }
+    
+    static void release(ByteBuffer buffer)
+    {
+        DIRECT.set(buffer);
+    }
+    
+    /**
+     * @return an array of {@link #SIZE} bytes, to be given back with {@link #release(byte[])}
+     */
+    static byte[] takeBlock()
+    {
+        byte[] block = BLOCK.get();
+        if(block == null)
+        {
+            return new byte[SIZE];
+        }
+        BLOCK.set(null);
+        return block;
+    }
+    
+    static void release(byte[] block)
+    {
+        BLOCK.set(block);
+    }
+}
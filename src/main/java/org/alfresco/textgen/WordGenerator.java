@@ -18,145 +18,334 @@
  */
 package org.alfresco.textgen;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.NavigableSet;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Select a word basd on cumulative frequencey
+ * <p>
+ * A word generator is immutable once built, so one instance can be shared by any number of threads without locking.
+ * Words are collected with a {@link Builder}.
+ * <p>
+ * The words are held as UTF-8 end to end in a single byte array, with the offset of each word in an int array, rather
+ * than as a String and a byte array per word. Generating text copies words straight out of the shared array.
  * 
  * @author Andy
  * @since 1.0
  */
-public class WordGenerator 
+public class WordGenerator implements WordSampler
 {
     private static int DEFAULT_SIZE = 1024;
     
-    int nextPosition = 0;
+    private static final AtomicLong NEXT_ID = new AtomicLong();
     
-    long cumulativeFrequency = 0L;
+    /**
+     * Unique to this generator, so it can be identified without holding a reference to it
+     */
+    private final long id = NEXT_ID.getAndIncrement();
     
-    long[] cumulativeFrequencies;
+    private final int wordCount;
     
-    String[] words;
+    private final long cumulativeFrequency;
     
-    TreeSet<WordAndFrequency> wandf = new TreeSet<WordAndFrequency>();
+    private final long[] cumulativeFrequencies;
     
-    public WordGenerator()
-    {
-        cumulativeFrequencies = new long[DEFAULT_SIZE];
-        words = new String[DEFAULT_SIZE];
-    }
+    /**
+     * The UTF-8 bytes of every word, end to end
+     */
+    private final byte[] arena;
     
-    public WordGenerator(int initialSize)
-    {
-        cumulativeFrequencies = new long[initialSize];
-        words = new String[initialSize];
-    }
+    /**
+     * The offset of each word in the arena, with the end of the last word as the final entry
+     */
+    private final int[] offsets;
+    
+    private final FrequencyIndex frequencyIndex;
+    
+    private final AliasWordSampler aliasSampler;
+    
+    private final TokenVocabulary tokens;
+    
+    /**
+     * The words decoded to Strings, built when first needed. Building it twice in a race is harmless.
+     */
+    private volatile String[] words;
     
     /**
-     * Add a word.
-     *  
-     * @param frequency - per million words
+     * The words as chars, built when first needed. Building it twice in a race is harmless.
      */
-    public void addWord(String word, long frequency)
+    private volatile WordChars wordChars;
+    
+    private WordGenerator(Builder builder)
     {
-        if(nextPosition == cumulativeFrequencies.length)
+        wordCount = builder.nextPosition;
+        cumulativeFrequency = builder.cumulativeFrequency;
+        cumulativeFrequencies = Arrays.copyOf(builder.cumulativeFrequencies, wordCount);
+        arena = Arrays.copyOf(builder.arena, builder.arenaSize);
+        offsets = Arrays.copyOf(builder.offsets, wordCount + 1);
+        offsets[wordCount] = builder.arenaSize;
+        
+        long[] frequencies = new long[wordCount];
+        for(int i = 0; i < wordCount; i++)
         {
-            resize();
+            frequencies[i] = getFrequencyAt(i);
         }
-        cumulativeFrequency += frequency;
-        cumulativeFrequencies[nextPosition] = cumulativeFrequency;
-        words[nextPosition++] = word;
-        wandf.add(new WordAndFrequency(word, frequency));
+        frequencyIndex = new FrequencyIndex(this, frequencies, wordCount);
+        aliasSampler = new AliasWordSampler(frequencies, wordCount);
+        tokens = new TokenVocabulary(arena, offsets, wordCount);
     }
-
+    
+    /**
+     * @return an id that no other generator in this JVM has, assigned when the generator is built
+     */
+    long getId()
+    {
+        return id;
+    }
+    
     /**
      * Get a word from the distribution based on a uniform distribution between 0 and 1 
      */
     public String getWord(double value)
+    {
+        int position = getWordIndex(value);
+        return position < 0 ? null : getWordAt(position);
+    }
+    
+    /**
+     * Get the position of a word from the distribution based on a uniform distribution between 0 and 1
+     * 
+     * @return the position of the word or -1 if there is no word for the value
+     */
+    public int getWordIndex(double value)
     {
         if((value < 0) || (value > 1))
         {
-            return null;
+            return -1;
         }
         
-        if(nextPosition == 0)
+        if(wordCount == 0)
         {
-            return null;
+            return -1;
         }
         
         long key = (long)(cumulativeFrequency * value);
-        int position = Arrays.binarySearch(cumulativeFrequencies, 0, nextPosition, key);
+        int position = Arrays.binarySearch(cumulativeFrequencies, 0, wordCount, key);
         if(position < 0)
         {
             position = -(position + 1);
-            if(position <  nextPosition - 1)
+            if(position <  wordCount - 1)
             {
-                return words[position];
+                return position;
             }
             else
             {
-                return words[nextPosition - 1];
+                return wordCount - 1;
             }
         }
         else
         {
-            if(position <  nextPosition - 1)
+            if(position <  wordCount - 1)
             {
-                return words[position+1];
+                return position + 1;
             }
             else
             {
-                return words[nextPosition - 1];
+                return wordCount - 1;
             }
         }
     }
     
     /**
+     * Get the alias table sampler for the words.
+     */
+    public AliasWordSampler getAliasSampler()
+    {
+        return aliasSampler;
+    }
+    
+    /**
+     * Get the word at the given position. The words are decoded from their UTF-8 bytes once, when a word is first
+     * asked for, and the same String is returned every time after that.
+     */
+    public String getWordAt(int position)
+    {
+        String[] decoded = words;
+        if(decoded == null)
+        {
+            decoded = new String[wordCount];
+            for(int i = 0; i < wordCount; i++)
+            {
+                decoded[i] = new String(arena, offsets[i], getWordLength(i), StandardCharsets.UTF_8);
+            }
+            words = decoded;
+        }
+        return decoded[position];
+    }
+    
+    /**
+     * Get the frequency with which the word at the given position was added
+     */
+    public long getFrequencyAt(int position)
+    {
+        return position == 0 ? cumulativeFrequencies[0] : cumulativeFrequencies[position] - cumulativeFrequencies[position - 1];
+    }
+    
+    /**
+     * Get a copy of the UTF-8 encoding of the word at the given position. Each call returns a new array, which the
+     * caller may change; before the words were held in a single arena the array was shared. Use
+     * {@link #copyWord(int, byte[], int)} to avoid allocating.
      * 
+     * @see #copyWord(int, byte[], int)
      */
-    private void resize()
-    {   
-        String[] newWords = new String[words.length * 2];
-        System.arraycopy(words, 0, newWords, 0, words.length);
-        
-        long[] newCumulativeFrequencies = new long[cumulativeFrequencies.length * 2];
-        System.arraycopy(cumulativeFrequencies, 0, newCumulativeFrequencies, 0, cumulativeFrequencies.length);
-        
-        words = newWords;
-        cumulativeFrequencies = newCumulativeFrequencies;
-        
+    public byte[] getWordBytes(int position)
+    {
+        return Arrays.copyOfRange(arena, offsets[position], offsets[position + 1]);
+    }
+    
+    /**
+     * Get the length of the UTF-8 encoding of the word at the given position
+     */
+    public int getWordLength(int position)
+    {
+        return offsets[position + 1] - offsets[position];
+    }
+    
+    /**
+     * Copy the UTF-8 encoding of the word at the given position into an array.
+     * 
+     * @return the number of bytes copied
+     */
+    public int copyWord(int position, byte[] destination, int offset)
+    {
+        int length = getWordLength(position);
+        System.arraycopy(arena, offsets[position], destination, offset, length);
+        return length;
+    }
+    
+    /**
+     * The UTF-8 bytes of all the words, which is shared and must not be modified
+     */
+    byte[] getArena()
+    {
+        return arena;
+    }
+    
+    /**
+     * The offset of the word at the given position in the {@link #getArena() arena}
+     */
+    int getWordOffset(int position)
+    {
+        return offsets[position];
     }
     
     public int getWordCount()
     {
-        return nextPosition;
+        return wordCount;
+    }
+    
+    /**
+     * Get the number of distinct tokens in the words. A token is a run of text between spaces, so a word such as
+     * "according to" has two tokens and an empty word has none.
+     */
+    public int getTokenCount()
+    {
+        return tokens.getTokenCount();
+    }
+    
+    /**
+     * Get the token with the given id, from zero up to the {@link #getTokenCount() token count}
+     */
+    public String getToken(int id)
+    {
+        return tokens.getToken(id);
+    }
+    
+    /**
+     * Get a copy of the UTF-8 encoding of the token with the given id
+     */
+    public byte[] getTokenBytes(int id)
+    {
+        return tokens.getTokenBytes(id);
+    }
+    
+    /**
+     * The tokens of the words, worked out when the generator was built
+     */
+    TokenVocabulary getTokenVocabulary()
+    {
+        return tokens;
+    }
+    
+    /**
+     * The words decoded to chars, end to end, for generating text without decoding it again
+     */
+    WordChars getWordChars()
+    {
+        WordChars chars = wordChars;
+        if(chars == null)
+        {
+            StringBuilder builder = new StringBuilder(arena.length);
+            int[] charOffsets = new int[wordCount + 1];
+            for(int i = 0; i < wordCount; i++)
+            {
+                charOffsets[i] = builder.length();
+                builder.append(getWordAt(i));
+            }
+            charOffsets[wordCount] = builder.length();
+            char[] all = new char[builder.length()];
+            builder.getChars(0, all.length, all, 0);
+            chars = new WordChars(all, charOffsets);
+            wordChars = chars;
+        }
+        return chars;
+    }
+    
+    /**
+     * An estimate of the heap used by the words and the tables built from them, in bytes
+     */
+    public long getMemoryUsage()
+    {
+        // The arena and offsets, cumulative frequencies, frequency index positions and frequencies, alias probabilities
+        // and aliases - plus a little for each object and array
+        WordChars chars = wordChars;
+        long charUsage = chars == null ? 0 : 2L * chars.chars.length + 4L * chars.offsets.length;
+        // A reference, header and value array for each String, and the bytes of the value arrays
+        long stringUsage = words == null ? 0 : 48L * wordCount + arena.length;
+        return arena.length + 4L * offsets.length + 8L * wordCount + 12L * frequencyIndex.size() + 12L * wordCount + tokens.getMemoryUsage() + charUsage + stringUsage + 256;
     }
     
     
     public Set<String> getWordSet()
     {
         HashSet<String> wordSet = new HashSet<String> ();
-        for(int i = 0; i < words.length; i++)
+        for(int i = 0; i < wordCount; i++)
         {
-            wordSet.add(words[i]);
+            wordSet.add(getWordAt(i));
         }
         return wordSet;
     }
     
     public void printWords()
     {
-        for(WordAndFrequency thing : wandf)
+        for(int rank = 0; rank < frequencyIndex.size(); rank++)
         {
-            System.out.println(thing.word + ",   "+thing.frequencyPerMillion);
+            System.out.println(frequencyIndex.getWord(rank) + ",   "+frequencyIndex.getFrequency(rank));
         }
     }
     
+    /**
+     * @return the words ordered by frequency
+     */
+    public FrequencyIndex getFrequencyIndex()
+    {
+        return frequencyIndex;
+    }
+    
     public String get(int words, double approximateFrequency)
     {
       
@@ -165,16 +354,14 @@ public class WordGenerator
         StringBuffer buffer = new StringBuffer();
         int count = 0;
         double actualFrequency = 1.0d;
-        NavigableSet<WordAndFrequency> set = wandf.headSet(new WordAndFrequency("", hunt), true);
-        for(Iterator<WordAndFrequency> it = set.descendingIterator() ; it.hasNext() && count < words; /**/)
+        for(int rank = frequencyIndex.countAtMost(hunt) - 1; rank >= 0 && count < words; rank--)
         {
-            WordAndFrequency wandf = it.next();
             if(buffer.length() > 0)
             {
                 buffer.append(" ");
             }
-            buffer.append(wandf.word);
-            actualFrequency *= (wandf.frequencyPerMillion / 1000000d);
+            buffer.append(frequencyIndex.getWord(rank));
+            actualFrequency *= (frequencyIndex.getFrequency(rank) / 1000000d);
             count++;
         }
         
@@ -189,65 +376,153 @@ public class WordGenerator
         
     }
     
-    public ArrayList<String> getWords(long fpmw)
+    /**
+     * @return a view of the words with exactly the given frequency
+     */
+    public List<String> getWords(long fpmw)
     {
-        ArrayList<String> equals = new ArrayList<String>();
-        NavigableSet<WordAndFrequency> set = wandf.headSet(new WordAndFrequency("", fpmw), true);
-        for(Iterator<WordAndFrequency> it = set.descendingIterator() ; it.hasNext(); )
+        return frequencyIndex.getWordsDescending(frequencyIndex.countLessThan(fpmw), frequencyIndex.countAtMost(fpmw));
+    }
+    
+    /**
+     * @return a view of the words with at most the given frequency, most frequent first
+     */
+    public List<String> getWordsLessFrequent(long fpmw)
+    {
+        return frequencyIndex.getWordsDescending(0, frequencyIndex.countAtMost(fpmw));
+    }
+    
+    /**
+     * The chars of all the words end to end, with the offset of each word and the end of the last word as the final
+     * offset. The arrays are shared and must not be modified.
+     */
+    static class WordChars
+    {
+        final char[] chars;
+        
+        final int[] offsets;
+        
+        WordChars(char[] chars, int[] offsets)
         {
-            WordAndFrequency wandf = it.next();
-            if(wandf.frequencyPerMillion == fpmw)
-            {
-                equals.add(wandf.word);
-            }
-            else
-            {
-                break;
-            }
+            this.chars = chars;
+            this.offsets = offsets;
         }
-        return equals;
     }
     
-    public ArrayList<String> getWordsLessFrequent(long fpmw)
+    /**
+     * Collects words and their frequencies to build a word generator. A builder is not thread safe.
+     */
+    public static class Builder
     {
-        ArrayList<String> equals = new ArrayList<String>();
-        NavigableSet<WordAndFrequency> set = wandf.headSet(new WordAndFrequency("", fpmw), true);
-        for(Iterator<WordAndFrequency> it = set.descendingIterator() ; it.hasNext(); )
+        private int nextPosition = 0;
+        
+        private long cumulativeFrequency = 0L;
+        
+        private long[] cumulativeFrequencies;
+        
+        private int[] offsets;
+        
+        private byte[] arena;
+        
+        private int arenaSize = 0;
+        
+        public Builder()
+        {
+            this(DEFAULT_SIZE);
+        }
+        
+        public Builder(int initialSize)
+        {
+            initialSize = Math.max(initialSize, 1);
+            cumulativeFrequencies = new long[initialSize];
+            offsets = new int[initialSize + 1];
+            arena = new byte[initialSize * 8];
+        }
+        
+        /**
+         * Add a word.
+         *  
+         * @param frequency - per million words
+         */
+        public Builder addWord(String word, long frequency)
+        {
+            ensureArena((long)word.length() * 3);
+            int end = RandomTextInputStream.encode(word, arena, arenaSize);
+            return addWord(end - arenaSize, frequency);
+        }
+        
+        /**
+         * Add words that have already been encoded as UTF-8 and laid end to end.
+         * 
+         * @param bytes - the words
+         * @param lengths - the length of each word in bytes
+         * @param frequencies - the frequency of each word
+         */
+        Builder addWords(byte[] bytes, int[] lengths, long[] frequencies)
         {
-            WordAndFrequency wandf = it.next();
-            if(wandf.frequencyPerMillion <= fpmw)
+            long total = 0;
+            for(int length : lengths)
             {
-                equals.add(wandf.word);
+                total += length;
             }
-            else
+            if(total > bytes.length)
+            {
+                throw new IllegalArgumentException("Word lengths add up to " + total + " bytes but there are only " + bytes.length);
+            }
+            ensureArena(total);
+            System.arraycopy(bytes, 0, arena, arenaSize, (int)total);
+            for(int i = 0; i < lengths.length; i++)
             {
-                break;
+                addWord(lengths[i], frequencies[i]);
             }
+            return this;
         }
-        return equals;
-    }
-    
-    private static class WordAndFrequency implements Comparable<WordAndFrequency>
-    {
-        String word;
         
-        long frequencyPerMillion;
-
-        public WordAndFrequency(String word, long frequencyPer10million)
+        /**
+         * Record a word whose bytes have been put in the arena at the current size
+         */
+        private Builder addWord(int length, long frequency)
         {
-            this.word = word;
-            this.frequencyPerMillion = frequencyPer10million;
+            if(nextPosition == cumulativeFrequencies.length)
+            {
+                resize();
+            }
+            cumulativeFrequency += frequency;
+            cumulativeFrequencies[nextPosition] = cumulativeFrequency;
+            offsets[nextPosition++] = arenaSize;
+            arenaSize += length;
+            return this;
         }
-
-        public int compareTo(WordAndFrequency other)
+        
+        public int getWordCount()
+        {
+            return nextPosition;
+        }
+        
+        /**
+         * Build an immutable word generator from the words added so far. The builder can carry on being used.
+         */
+        public WordGenerator build()
+        {
+            return new WordGenerator(this);
+        }
+        
+        private void resize()
+        {   
+            offsets = Arrays.copyOf(offsets, cumulativeFrequencies.length * 2 + 1);
+            cumulativeFrequencies = Arrays.copyOf(cumulativeFrequencies, cumulativeFrequencies.length * 2);
+        }
+        
+        private void ensureArena(long extra)
         {
-            if(this.frequencyPerMillion == other.frequencyPerMillion)
+            long required = arenaSize + extra;
+            if(required > Integer.MAX_VALUE - 8)
             {
-                return other.word.compareTo(this.word);
+                throw new IllegalStateException("Too many word bytes for one lexicon: " + required);
             }
-            else
+            if(required > arena.length)
             {
-                return (int)(this.frequencyPerMillion - other.frequencyPerMillion);
+                arena = Arrays.copyOf(arena, (int)Math.min(Math.max(required, (long)arena.length * 2), Integer.MAX_VALUE - 8));
             }
         }
     }
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A generated document as a sequence of ids, without encoding any text. The ids are either tokens or lexicon entries.
+ * Use {@link TextGenerator#getWordIdStream(long, long, String...)} for tokens and
+ * {@link TextGenerator#getEntryIdStream(long, long, String...)} for entries.
+ * <p>
+ * <b>Tokens</b> are the text split at spaces, skipping empty tokens, as {@link CorpusOracle} splits it. So the ids are
+ * exactly the tokens an analyzer splitting the stream from {@link TextGenerator#getInputStream(long, long, String...)}
+ * at spaces would find, in the same order. The token ids of each lexicon entry were worked out when the
+ * {@link WordGenerator} was built, so reading tokens costs no more than reading entries. A token found in the lexicon
+ * has its id from the word generator, from zero up, whether it comes from an entry or a fixed string. A token only
+ * found in the fixed strings has a negative id, -1 for the first such token, -2 for the next and so on; these ids are
+ * only meaningful for this stream.
+ * <p>
+ * <b>Entries</b> are exactly those in the stream from {@link TextGenerator#getInputStream(long, long, String...)} for
+ * the same arguments and in the same order. Some entries hold several tokens, such as "according to", and one entry
+ * is empty. Entries from the lexicon have ids from zero up - their positions in the word generator. Each fixed
+ * string is a single negative id, -1 for the first string passed in, -2 for the next and so on.
+ * <p>
+ * The padding at the end of the text is not represented. Either kind of id can be turned back into text with
+ * {@link #getWord(int)} or {@link #getWordBytes(int)}.
+ * <p>
+ * A stream is not thread safe.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class WordIdStream
+{
+    private final WordGenerator wg;
+    
+    private final boolean entries;
+    
+    /**
+     * The text for each negative id
+     */
+    private final String[] strings;
+    
+    private final byte[][] stringBytes;
+    
+    /**
+     * The ids for each fixed string
+     */
+    private final int[][] stringIds;
+    
+    private final WordSequence sequence;
+    
+    private final int[] fixedStringIndexes;
+    
+    private int fixedStringPosition = 0;
+    
+    private final int[] entryTokens;
+    
+    private final int[] entry = new int[1];
+    
+    /**
+     * The ids of the current entry or fixed string that are still to be read
+     */
+    private int[] pending;
+    
+    private int pendingPosition = 0;
+    
+    private int pendingEnd = 0;
+    
+    private boolean finished = false;
+    
+    WordIdStream(WordGenerator wg, WordSampler sampler, long seed, long length, String[] strings, boolean entries)
+    {
+        this.wg = wg;
+        this.entries = entries;
+        String[] fixed = strings == null ? new String[0] : strings.clone();
+        sequence = new WordSequence(wg, sampler);
+        sequence.reset(seed, length, fixed);
+        fixedStringIndexes = sequence.getFixedStringIndexes();
+        
+        stringIds = new int[fixed.length][];
+        if(entries)
+        {
+            this.strings = fixed;
+            for(int i = 0; i < fixed.length; i++)
+            {
+                stringIds[i] = new int[] { -1 - i };
+            }
+            entryTokens = null;
+        }
+        else
+        {
+            TokenVocabulary vocabulary = wg.getTokenVocabulary();
+            HashMap<String, Integer> others = new HashMap<String, Integer>();
+            ArrayList<String> tokens = new ArrayList<String>();
+            for(int i = 0; i < fixed.length; i++)
+            {
+                if(fixed[i] == null)
+                {
+                    continue;
+                }
+                // Ids are only needed for the strings that are in the text
+                List<String> split = CorpusOracle.tokenize(fixed[i]);
+                stringIds[i] = new int[split.size()];
+                for(int j = 0; j < split.size(); j++)
+                {
+                    String token = split.get(j);
+                    byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+                    int id = vocabulary.getTokenId(bytes, 0, bytes.length);
+                    if(id == -1)
+                    {
+                        Integer other = others.get(token);
+                        if(other == null)
+                        {
+                            tokens.add(token);
+                            other = -tokens.size();
+                            others.put(token, other);
+                        }
+                        id = other;
+                    }
+                    stringIds[i][j] = id;
+                }
+            }
+            this.strings = tokens.toArray(new String[tokens.size()]);
+            entryTokens = vocabulary.getEntryTokens();
+        }
+        
+        stringBytes = new byte[this.strings.length][];
+        for(int i = 0; i < this.strings.length; i++)
+        {
+            if(this.strings[i] != null)
+            {
+                stringBytes[i] = this.strings[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+    
+    /**
+     * @return true if this stream has the ids of lexicon entries rather than tokens
+     */
+    public boolean isEntries()
+    {
+        return entries;
+    }
+    
+    /**
+     * Read the next ids into an array.
+     * 
+     * @return the number of ids read or -1 at the end of the document
+     */
+    public int read(int[] ids, int off, int len)
+    {
+        if((off < 0) || (len < 0) || (len > ids.length - off))
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if(len == 0)
+        {
+            return 0;
+        }
+        
+        int count = 0;
+        while(count < len)
+        {
+            if(pendingPosition < pendingEnd)
+            {
+                int copy = Math.min(len - count, pendingEnd - pendingPosition);
+                System.arraycopy(pending, pendingPosition, ids, off + count, copy);
+                pendingPosition += copy;
+                count += copy;
+            }
+            else if(!nextEntry())
+            {
+                break;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+    
+    /**
+     * Move on to the ids of the next fixed string or entry
+     * 
+     * @return false at the end of the document
+     */
+    private boolean nextEntry()
+    {
+        if((fixedStringIndexes != null) && (fixedStringPosition < fixedStringIndexes.length))
+        {
+            pending = stringIds[fixedStringIndexes[fixedStringPosition++]];
+            pendingPosition = 0;
+            pendingEnd = pending.length;
+            return true;
+        }
+        if(finished)
+        {
+            return false;
+        }
+        int position = sequence.next();
+        if(position == -1)
+        {
+            finished = true;
+            return false;
+        }
+        if(entries)
+        {
+            entry[0] = position;
+            pending = entry;
+            pendingPosition = 0;
+            pendingEnd = 1;
+        }
+        else
+        {
+            TokenVocabulary vocabulary = wg.getTokenVocabulary();
+            pending = entryTokens;
+            pendingPosition = vocabulary.getEntryTokenOffset(position);
+            pendingEnd = vocabulary.getEntryTokenOffset(position + 1);
+        }
+        return true;
+    }
+    
+    /**
+     * The ids that have not been read yet, as a sequential stream. Reading from the stream reads from this, so only
+     * one of them should be used.
+     */
+    public IntStream stream()
+    {
+        return StreamSupport.intStream(new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL)
+        {
+            private final int[] buffer = new int[256];
+            
+            private int position = 0;
+            
+            private int count = 0;
+            
+            public boolean tryAdvance(IntConsumer action)
+            {
+                if(position == count)
+                {
+                    count = Math.max(read(buffer, 0, buffer.length), 0);
+                    position = 0;
+                    if(count == 0)
+                    {
+                        return false;
+                    }
+                }
+                action.accept(buffer[position++]);
+                return true;
+            }
+        }, false);
+    }
+    
+    /**
+     * @return true if the id is text from the fixed strings rather than from the lexicon. For tokens, a token from a
+     *         fixed string that is also in the lexicon has its id from the lexicon.
+     */
+    public static boolean isFixedString(int id)
+    {
+        return id < 0;
+    }
+    
+    /**
+     * @return the text for an id
+     */
+    public String getWord(int id)
+    {
+        if(id < 0)
+        {
+            return strings[-1 - id];
+        }
+        return entries ? wg.getWordAt(id) : wg.getToken(id);
+    }
+    
+    /**
+     * @return the UTF-8 encoding of the text for an id. The array for a negative id is shared and must not be
+     *         modified; the array for a lexicon entry or token is a new copy on every call.
+     * @see WordGenerator#copyWord(int, byte[], int)
+     */
+    public byte[] getWordBytes(int id)
+    {
+        if(id < 0)
+        {
+            return stringBytes[-1 - id];
+        }
+        return entries ? wg.getWordBytes(id) : wg.getTokenBytes(id);
+    }
+}
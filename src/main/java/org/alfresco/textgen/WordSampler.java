@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+/**
+ * Selects the position of a word in a {@link WordGenerator} from a uniform value between 0 and 1.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public interface WordSampler
+{
+    /**
+     * @param value - a value from a uniform distribution between 0 and 1
+     * @return the position of the selected word or -1 if there is no word for the value
+     */
+    public int getWordIndex(double value);
+}
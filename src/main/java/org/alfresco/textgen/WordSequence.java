@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * The sequence of word positions in a generated document, without the bytes. It draws exactly the same words as
+ * {@link RandomTextInputStream} for the same seed, length and fixed strings, and stops at the same word.
+ * <p>
+ * A sequence can be reset for another document; it is not thread safe.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+class WordSequence
+{
+    private final WordGenerator wg;
+    
+    private final WordSampler sampler;
+    
+    private final Random random = new Random();
+    
+    private long length;
+    
+    private long bytesSoFar;
+    
+    private boolean pad;
+    
+    private long padding;
+    
+    private int[] fixedStringIndexes;
+    
+    private String fixedStrings;
+    
+    WordSequence(WordGenerator wg, WordSampler sampler)
+    {
+        this.wg = wg;
+        this.sampler = sampler;
+    }
+    
+    /**
+     * Start a new document
+     */
+    void reset(long seed, long length, String[] strings)
+    {
+        this.length = length;
+        padding = 0;
+        fixedStringIndexes = RandomTextInputStream.selectFixedStrings(random, seed, strings);
+        fixedStrings = RandomTextInputStream.joinFixedStrings(strings, fixedStringIndexes);
+        if(fixedStrings != null)
+        {
+            int fixedLength = fixedStrings.getBytes(StandardCharsets.UTF_8).length;
+            if(fixedLength > length)
+            {
+                throw new IllegalStateException("Length "+length+ " is too short for required strings: "+ fixedStrings);
+            }
+            bytesSoFar = fixedLength;
+            pad = true;
+        }
+        else
+        {
+            bytesSoFar = 0;
+            pad = false;
+        }
+        random.setSeed(seed);
+    }
+    
+    /**
+     * @return the fixed strings at the start of the document, separated by spaces, or null if there are none
+     */
+    String getFixedStrings()
+    {
+        return fixedStrings;
+    }
+    
+    /**
+     * @return the indexes of the fixed strings at the start of the document, or null if there were no strings
+     */
+    int[] getFixedStringIndexes()
+    {
+        return fixedStringIndexes;
+    }
+    
+    /**
+     * @return the number of spaces that pad the document after the last word, once {@link #next()} has reached the end
+     */
+    long getPadding()
+    {
+        return padding;
+    }
+    
+    /**
+     * @return the position of the next word in the word generator or -1 at the end of the document
+     */
+    int next()
+    {
+        if(bytesSoFar >= length)
+        {
+            return -1;
+        }
+        int position = sampler.getWordIndex(random.nextDouble());
+        if(position < 0)
+        {
+            throw new IllegalStateException("Word generation failed");
+        }
+        int wordByteCount = pad ? wg.getWordLength(position) + 1 : wg.getWordLength(position);
+        if(bytesSoFar + wordByteCount > length)
+        {
+            padding = length - bytesSoFar;
+            bytesSoFar = length;
+            return -1;
+        }
+        bytesSoFar += wordByteCount;
+        pad = true;
+        return position;
+    }
+}
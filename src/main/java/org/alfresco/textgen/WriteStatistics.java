@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What happened when generated content was written to a target.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+public class WriteStatistics
+{
+    private final long bytesWritten;
+    
+    private final long elapsedNanos;
+    
+    WriteStatistics(long bytesWritten, long elapsedNanos)
+    {
+        this.bytesWritten = bytesWritten;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    public long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+    
+    /**
+     * @return the time taken to generate and write the content, including any time the target blocked
+     */
+    public long getElapsedTime(TimeUnit unit)
+    {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * @return the bytes written per second
+     */
+    public double getThroughput()
+    {
+        return elapsedNanos == 0 ? 0 : bytesWritten * 1e9 / elapsedNanos;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "WriteStatistics [bytesWritten=" + bytesWritten + ", elapsedNanos=" + elapsedNanos + ", throughput=" + getThroughput() + "]";
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class BatchTextGeneratorTest
+{
+    @Test
+    public void batchGenerationTest() throws Exception
+    {
+        final TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        DocumentLength length = new DocumentLength()
+        {
+            public long getLength(long seed)
+            {
+                return 20 + (seed * 31) % 5000;
+            }
+        };
+        long expectedBytes = 0;
+        for(long seed = 100; seed < 1100; seed++)
+        {
+            expectedBytes += length.getLength(seed);
+        }
+        
+        ExecutorService executor = BatchTextGenerator.newDefaultExecutor();
+        try
+        {
+            final ConcurrentHashMap<Long, byte[]> unordered = new ConcurrentHashMap<Long, byte[]>();
+            WriteStatistics statistics = tg.getBatchTextGenerator(executor).generate(100, 1100, length, 16, false, new BatchTextGenerator.DocumentSink()
+            {
+                public void accept(long seed, byte[] content)
+                {
+                    unordered.put(seed, content);
+                }
+            }, "one", "two");
+            assertEquals(expectedBytes, statistics.getBytesWritten());
+            assertEquals(1000, unordered.size());
+            
+            final long[] next = new long[] { 100 };
+            statistics = tg.getBatchTextGenerator(executor).generate(100, 1100, length, 4, true, new BatchTextGenerator.DocumentSink()
+            {
+                public void accept(long seed, byte[] content) throws IOException
+                {
+                    assertEquals(next[0]++, seed);
+                    assertArrayEquals(Streams.readBulk(tg.getInputStream(seed, content.length, "one", "two"), 4096), content);
+                    assertArrayEquals(unordered.get(seed), content);
+                }
+            }, "one", "two");
+            assertEquals(1100, next[0]);
+            assertEquals(expectedBytes, statistics.getBytesWritten());
+            
+            for(boolean ordered : new boolean[] { true, false })
+            {
+                try
+                {
+                    tg.getBatchTextGenerator(executor).generate(0, 10000, length, 8, ordered, new BatchTextGenerator.DocumentSink()
+                    {
+                        public void accept(long seed, byte[] content) throws IOException
+                        {
+                            if(seed == 50)
+                            {
+                                throw new IOException("Sink failed");
+                            }
+                        }
+                    });
+                    fail();
+                }
+                catch(IOException e)
+                {
+                    assertEquals("Sink failed", e.getMessage());
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32C;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class ChecksumCalculatorTest
+{
+    /**
+     * A small document must not generate whole segments in parallel
+     */
+    @Test
+    public void crc32cSmallDocumentTest() throws Exception
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        ChecksumCalculator calculator = tg.getChecksumCalculator();
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try
+        {
+            long parallel = 0;
+            long sequential = 0;
+            for(int round = 0; round < 2; round++)
+            {
+                // The first round warms up
+                parallel = 0;
+                sequential = 0;
+                for(long seed = 0; seed < 200; seed++)
+                {
+                    long start = System.nanoTime();
+                    long crc = calculator.crc32c(seed, 1024, pool);
+                    parallel += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    assertEquals(calculator.checksum(seed, 1024).getCrc32c(), crc);
+                    sequential += System.nanoTime() - start;
+                }
+            }
+            // Generous, as the sequential path also works out SHA-256
+            assertTrue(parallel + " against " + sequential, parallel < 2 * sequential + 50000000L);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void checksumTest() throws Exception
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        ChecksumCalculator calculator = tg.getChecksumCalculator();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            for(long length : new long[] { 0, 3, 1000, 400000, 1500000, 3000000 })
+            {
+                for(String[] strings : new String[][] { {}, { "one", "two" } })
+                {
+                    if(length < 3 && strings.length > 0)
+                    {
+                        continue;
+                    }
+                    byte[] content = Streams.readBulk(tg.getInputStream(11, length, strings), 8192);
+                    CRC32C crc = new CRC32C();
+                    crc.update(content, 0, content.length);
+                    
+                    DocumentChecksum checksum = tg.getChecksum(11, length, strings);
+                    assertEquals(length, checksum.getLength());
+                    assertEquals(crc.getValue(), checksum.getCrc32c());
+                    assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content), checksum.getSha256());
+                    assertEquals(crc.getValue(), calculator.crc32c(11, length, pool, strings));
+                }
+            }
+            
+            byte[] bytes = "The quick brown fox jumps over the lazy dog".getBytes("UTF-8");
+            CRC32C whole = new CRC32C();
+            whole.update(bytes, 0, bytes.length);
+            CRC32C first = new CRC32C();
+            first.update(bytes, 0, 10);
+            CRC32C second = new CRC32C();
+            second.update(bytes, 10, bytes.length - 10);
+            assertEquals(whole.getValue(), ChecksumCalculator.combine(first.getValue(), second.getValue(), bytes.length - 10));
+            
+            final ConcurrentHashMap<Long, DocumentChecksum> batch = new ConcurrentHashMap<Long, DocumentChecksum>();
+            DocumentLength documentLength = new DocumentLength()
+            {
+                public long getLength(long seed)
+                {
+                    return 10 + seed * 7;
+                }
+            };
+            calculator.checksum(0, 500, documentLength, new ChecksumCalculator.Sink()
+            {
+                public void accept(long seed, DocumentChecksum checksum)
+                {
+                    batch.put(seed, checksum);
+                }
+            }, pool, "one");
+            assertEquals(500, batch.size());
+            for(long seed = 0; seed < 500; seed += 37)
+            {
+                assertEquals(tg.getChecksum(seed, documentLength.getLength(seed), "one"), batch.get(seed));
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class ChunkCacheTest
+{
+    @Test
+    public void chunkCacheTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        ChunkCache cache = new ChunkCache(10 * 1000, 1000);
+        String[] strings = new String[] { "one", "two" };
+        
+        byte[] expected = Streams.readBulk(tg.getInputStream(7, 5500, strings), 5500);
+        assertArrayEquals(expected, Streams.readBulk(tg.getCachedInputStream(cache, 7, 5500, strings), 5500));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(6, cache.getMissCount());
+        assertEquals(6, cache.getChunkCount());
+        assertEquals(5500, cache.getMemoryUsage());
+        
+        // Read again from the cache
+        assertArrayEquals(expected, Streams.readBulk(tg.getCachedInputStream(cache, 7, 5500, strings), 5500));
+        assertEquals(6, cache.getHitCount());
+        assertEquals(6, cache.getMissCount());
+        
+        // Different strings are a different document
+        assertArrayEquals(Streams.readBulk(tg.getInputStream(7, 5500), 5500), Streams.readBulk(tg.getCachedInputStream(cache, 7, 5500), 5500));
+        assertEquals(12, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(10 * 1000, cache.getMemoryUsage());
+        
+        // Range reads, backwards and forwards, on a document that is not cached
+        cache.clear();
+        expected = Streams.readBulk(tg.getInputStream(8, 20000), 20000);
+        CachedRandomTextInputStream stream = tg.getCachedInputStream(cache, 8, 20000);
+        long[] positions = new long[] { 15500, 2999, 0, 19990, 7000 };
+        for(long position : positions)
+        {
+            stream.seek(position);
+            byte[] range = new byte[10];
+            assertEquals(10, stream.read(range, 0, 10));
+            assertArrayEquals(Arrays.copyOfRange(expected, (int)position, (int)position + 10), range);
+        }
+        stream.seek(20000);
+        assertEquals(-1, stream.read());
+        stream.seek(2999);
+        assertEquals(expected[2999] & 0xFF, stream.read());
+        assertEquals(expected[3000] & 0xFF, stream.read());
+        
+        // The same words loaded again are a different lexicon
+        TextGenerator reloaded = new TextGenerator(new ClassPathLexiconLoader("alfresco/textgen/lexicon-stem-en.txt").load());
+        long misses = cache.getMissCount();
+        assertArrayEquals(expected, Streams.readBulk(reloaded.getCachedInputStream(cache, 8, 20000), 4096));
+        assertEquals(misses + 20, cache.getMissCount());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class ChunkedRandomTextInputStreamTest
+{
+    @Test
+    public void chunkedStreamTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        
+        // A single chunk document is the same as the plain document
+        assertEquals(Streams.getString(tg.getInputStream(7, 1000, "one")), Streams.getString(tg.getChunkedInputStream(7, 1000, 1000, "one")));
+        
+        long length = 100000;
+        byte[] all = Streams.readSingleBytes(tg.getChunkedInputStream(7, length, 1000, "one"));
+        assertEquals(length, all.length);
+        assertArrayEquals(all, Streams.readBulk(tg.getChunkedInputStream(7, length, 1000, "one"), 777));
+        assertNotEquals(new String(all, 0, 1000, "UTF-8"), new String(all, 1000, 1000, "UTF-8"));
+        for(int i = 1; i < length / 1000; i++)
+        {
+            assertEquals(' ', all[i * 1000]);
+        }
+        
+        ChunkedRandomTextInputStream is = tg.getChunkedInputStream(7, length, 1000, "one");
+        assertEquals(50500, is.skip(50500));
+        assertEquals(50500, is.getPosition());
+        byte[] buffer = new byte[2000];
+        assertEquals(2000, is.read(buffer, 0, 2000));
+        assertArrayEquals(Arrays.copyOfRange(all, 50500, 52500), buffer);
+        
+        is.seek(10);
+        assertEquals(all[10] & 0xFF, is.read());
+        
+        // Fixed strings are checked against the document and then against the first chunk, which holds them
+        try
+        {
+            tg.getChunkedInputStream(7, 5, 1000, "too long");
+            fail();
+        }
+        catch(IllegalStateException e)
+        {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Length 5 "));
+        }
+        try
+        {
+            tg.getChunkedInputStream(7, length, 5, "too long");
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Chunk size 5 "));
+        }
+        
+        assertEquals(1500, is.read(length - 1500, buffer, 0, 2000));
+        assertArrayEquals(Arrays.copyOfRange(all, (int)length - 1500, (int)length), Arrays.copyOf(buffer, 1500));
+        assertEquals(11, is.getPosition());
+        assertEquals(-1, is.read(length, buffer, 0, 10));
+        
+        assertEquals(length - 11, is.skip(length));
+        assertEquals(-1, is.read());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class CorpusOracleTest
+{
+    @Test
+    public void corpusOracleTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        String[] terms = new String[] { "the", "of the", "a bit", "bit", "banana", "alpha beta", "zzzz" };
+        String[] strings = new String[] { "alpha beta", "gamma" };
+        DocumentLength length = new DocumentLength()
+        {
+            public long getLength(long seed)
+            {
+                return 200 + (seed % 7) * 100;
+            }
+        };
+        
+        CorpusOracle.Result result;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            result = tg.getCorpusOracle().count(1000, 4000, length, terms, pool, strings);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        
+        long[] documentFrequencies = new long[terms.length];
+        long[] termFrequencies = new long[terms.length];
+        for(long seed = 1000; seed < 4000; seed++)
+        {
+            String[] tokens = Streams.getString(tg.getInputStream(seed, length.getLength(seed), strings)).trim().split(" +");
+            for(int term = 0; term < terms.length; term++)
+            {
+                String[] termTokens = terms[term].split(" ");
+                int matches = 0;
+                for(int i = 0; i + termTokens.length <= tokens.length; i++)
+                {
+                    if(Arrays.equals(termTokens, Arrays.copyOfRange(tokens, i, i + termTokens.length)))
+                    {
+                        matches++;
+                    }
+                }
+                termFrequencies[term] += matches;
+                documentFrequencies[term] += matches > 0 ? 1 : 0;
+                assertEquals(terms[term] + " " + seed, matches > 0, result.matches(term, seed));
+            }
+        }
+        for(int term = 0; term < terms.length; term++)
+        {
+            assertEquals(terms[term], documentFrequencies[term], result.getDocumentFrequency(term));
+            assertEquals(terms[term], termFrequencies[term], result.getTermFrequency(term));
+            assertEquals(documentFrequencies[term], result.getMatchingSeeds(term).cardinality());
+        }
+        assertEquals(3000, result.getDocumentFrequency(5));
+        assertTrue(result.getDocumentFrequency(0) > 0);
+        assertEquals(0, result.getTermFrequency(6));
+    }
+}
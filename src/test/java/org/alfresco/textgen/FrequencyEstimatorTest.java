@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class FrequencyEstimatorTest
+{
+    @Test
+    public void frequencyEstimatorTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        FrequencyEstimator estimator = tg.getFrequencyEstimator(2000, 4000);
+        String[] terms = new String[] { "of", "of the", "in the", "banana" };
+        
+        CorpusOracle.Result result;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            result = tg.getCorpusOracle().count(0, 4000, new DocumentLength()
+            {
+                public long getLength(long seed)
+                {
+                    return 2000;
+                }
+            }, terms, pool);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        
+        for(int term = 0; term < terms.length; term++)
+        {
+            String[] words = terms[term].split(" ");
+            double documentFrequency = estimator.getDocumentFrequency(words);
+            double termFrequency = estimator.getTermFrequency(words);
+            assertTrue(terms[term] + " " + documentFrequency + " " + result.getDocumentFrequency(term),
+                    Math.abs(documentFrequency - result.getDocumentFrequency(term)) <= 0.1 * documentFrequency + 10);
+            assertTrue(terms[term] + " " + termFrequency + " " + result.getTermFrequency(term),
+                    Math.abs(termFrequency - result.getTermFrequency(term)) <= 0.1 * termFrequency + 10);
+        }
+        
+        // Long phrases of common words are too rare to match half the documents
+        for(double selectivity : new double[] { 0.5, 0.01, 0.001 })
+        {
+            for(int words = 1; words <= (selectivity > 0.1 ? 1 : 3); words++)
+            {
+                String phrase = estimator.findPhrase(words, selectivity);
+                assertEquals(phrase, words, phrase.split(" ").length);
+                double found = estimator.getDocumentFrequency(phrase.split(" ")) / estimator.getDocuments();
+                assertTrue(phrase + " " + found, (found > selectivity / 2) && (found < selectivity * 2));
+            }
+        }
+        assertEquals("the the the", estimator.findPhrase(3, 0.5));
+        assertEquals(2, estimator.findPhrase(2, 0).split(" ").length);
+    }
+}
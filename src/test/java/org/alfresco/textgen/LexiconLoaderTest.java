@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class LexiconLoaderTest
+{
+    @Test
+    public void binaryLexiconTest() throws IOException
+    {
+        TextGenerator text = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        TextGenerator binary = new TextGenerator("alfresco/textgen/lexicon-stem-en.bin");
+        assertWordTablesEqual(text.getWordGenerator(), binary.getWordGenerator());
+        assertEquals(Streams.getString(text.getInputStream(0, 10000, "one")), Streams.getString(binary.getInputStream(0, 10000, "one")));
+        
+        File file = File.createTempFile("textgen", ".bin");
+        try
+        {
+            OutputStream os = new FileOutputStream(file);
+            try
+            {
+                BinaryLexicon.write(text.getWordGenerator(), os);
+            }
+            finally
+            {
+                os.close();
+            }
+            assertWordTablesEqual(text.getWordGenerator(), BinaryLexicon.map(file.toPath()));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+    
+    private void assertWordTablesEqual(WordGenerator expected, WordGenerator actual)
+    {
+        assertEquals(expected.getWordCount(), actual.getWordCount());
+        for(int i = 0; i < expected.getWordCount(); i++)
+        {
+            assertEquals(expected.getWordAt(i), actual.getWordAt(i));
+            assertEquals(expected.getFrequencyAt(i), actual.getFrequencyAt(i));
+        }
+    }
+    
+    @Test
+    public void lexiconLoaderTest() throws IOException
+    {
+        WordGenerator expected = new ClassPathLexiconLoader("/alfresco/textgen/lexicon-stem-en.txt").load();
+        assertWordTablesEqual(expected, new TextGenerator("alfresco/textgen/lexicon-stem-en.txt").getWordGenerator());
+        assertWordTablesEqual(expected, new ClassPathLexiconLoader("alfresco/textgen/lexicon-stem-en.bin").load());
+        
+        File file = File.createTempFile("textgen", ".txt");
+        try
+        {
+            InputStream is = getClass().getClassLoader().getResourceAsStream("alfresco/textgen/lexicon-stem-en.txt");
+            try
+            {
+                Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            finally
+            {
+                is.close();
+            }
+            assertWordTablesEqual(expected, new FileLexiconLoader(file.toPath()).load());
+            assertWordTablesEqual(expected, new MappedLexiconLoader(file.toPath()).load());
+            InputStream stream = Files.newInputStream(file.toPath());
+            try
+            {
+                assertWordTablesEqual(expected, new StreamLexiconLoader(stream).load());
+            }
+            finally
+            {
+                stream.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+        
+        // Line ends, stars, alternatives, variants and lines that are skipped
+        String lexicon = "header\r\n"
+                + "1\tal*pha\tx\t:\t# 12 \ty\tz\r\n"
+                + "2\tbeta/gamma\tx\t*:\t0\ty\tz\r"
+                + "3\t@\tx\tde*lta / eps\t7\ty\tz\n"
+                + "4\tskipped\tx\t:\t5\ty\tz\t\t\n"
+                + "5\tdon't\tx\t:\t5\ty\tz\n"
+                + "6\ttoo\tmany\t:\t5\ty\tz\tq\n"
+                + "7\tcaf\u00e9\tx\t:\t+42\ty\tz\n"
+                + "8\tshort\tx\t:\t5\ty\t\n"
+                + "9\ttotal\tx\tmode\t5\ty\tz\n"
+                + "10\tlast\tx\t:\t3\ty\tz";
+        WordGenerator wg = new StreamLexiconLoader(new ByteArrayInputStream(lexicon.getBytes("UTF-8"))).load();
+        String[] words = new String[] { "alpha", "beta", "delta", "skipped", "caf\u00e9", "last" };
+        long[] frequencies = new long[] { 12, 1, 7, 5, 42, 3 };
+        assertEquals(words.length, wg.getWordCount());
+        for(int i = 0; i < words.length; i++)
+        {
+            assertEquals(words[i], wg.getWordAt(i));
+            assertEquals(frequencies[i], wg.getFrequencyAt(i));
+        }
+    }
+}
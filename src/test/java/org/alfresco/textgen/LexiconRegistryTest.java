@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class LexiconRegistryTest
+{
+    @Test
+    public void lexiconRegistryTest() throws Exception
+    {
+        final AtomicInteger loads = new AtomicInteger();
+        final LexiconLoader english = new ClassPathLexiconLoader("alfresco/textgen/lexicon-stem-en.txt");
+        long englishSize = english.load().getMemoryUsage();
+        
+        LexiconRegistry registry = new LexiconRegistry(englishSize + englishSize / 2);
+        registry.register("en", new LexiconLoader()
+        {
+            public WordGenerator load() throws IOException
+            {
+                loads.incrementAndGet();
+                return english.load();
+            }
+        });
+        registry.register("en-test", "alfresco/textgen/lexicon-stem-en-test.txt");
+        registry.register("en-copy", new ClassPathLexiconLoader("alfresco/textgen/lexicon-stem-en.bin"));
+        assertEquals(0, registry.getLoadedCount());
+        
+        // Loaded once, however many threads ask at the same time
+        final LexiconRegistry shared = registry;
+        final Set<WordGenerator> loaded = Collections.newSetFromMap(new ConcurrentHashMap<WordGenerator, Boolean>());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for(int i = 0; i < 16; i++)
+            {
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    public Void call() throws IOException
+                    {
+                        loaded.add(shared.getWordGenerator("en"));
+                        return null;
+                    }
+                }));
+            }
+            for(Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals(1, loaded.size());
+        assertEquals(1, loads.get());
+        
+        // Both fit
+        registry.getWordGenerator("en-test");
+        assertEquals(2, registry.getLoadedCount());
+        assertEquals(0, registry.getEvictionCount());
+        
+        // Using en makes en-test the least recently used, so it goes when en-copy needs the space - then en goes
+        // as well because the two large lexicons do not fit together
+        registry.getWordGenerator("en");
+        registry.getWordGenerator("en-copy");
+        assertEquals(1, registry.getLoadedCount());
+        assertEquals(2, registry.getEvictionCount());
+        assertTrue(registry.getMemoryUsage() <= registry.getMemoryBudget());
+        
+        assertNotSame(loaded.iterator().next(), registry.getWordGenerator("en"));
+        assertEquals(2, loads.get());
+        
+        try
+        {
+            registry.getWordGenerator("fr");
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+            // expected
+        }
+
+    }
+}
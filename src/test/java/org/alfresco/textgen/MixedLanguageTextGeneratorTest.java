@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class MixedLanguageTextGeneratorTest
+{
+    @Test
+    public void mixedLanguageTest() throws IOException
+    {
+        LexiconRegistry registry = new LexiconRegistry(Long.MAX_VALUE);
+        registry.register("en", "alfresco/textgen/lexicon-stem-en.txt");
+        registry.register("en-test", "alfresco/textgen/lexicon-stem-en-test.txt");
+        registry.register("en-copy", new ClassPathLexiconLoader("alfresco/textgen/lexicon-stem-en.bin"));
+        
+        MixedLanguageTextGenerator mixed = new MixedLanguageTextGenerator(registry, new String[] { "en", "en-test", "en-copy" }, new double[] { 3, 1, 0 }, SamplerVersion.ALIAS);
+        int englishDocuments = 0;
+        for(long seed = 0; seed < 10000; seed++)
+        {
+            String language = mixed.getLanguage(seed);
+            assertEquals(language, mixed.getLanguage(seed));
+            assertNotEquals("en-copy", language);
+            englishDocuments += language.equals("en") ? 1 : 0;
+        }
+        assertEquals(7500, englishDocuments, 200);
+        
+        for(long seed = 0; seed < 20; seed++)
+        {
+            TextGenerator tg = registry.getTextGenerator(mixed.getLanguage(seed), SamplerVersion.ALIAS);
+            assertArrayEquals(Streams.readBulk(tg.getInputStream(seed, 500), 100), Streams.readBulk(mixed.getInputStream(seed, 500), 100));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class ParallelTextGeneratorTest
+{
+    @Test
+    public void rethrowIOExceptionTest()
+    {
+        IOException original = new IOException("original");
+        // As a pool rethrows a task that failed on another worker
+        RuntimeException rethrown = new RuntimeException(new RuntimeException(new UncheckedIOException(original)));
+        try
+        {
+            ParallelTextGenerator.rethrowIOException(rethrown);
+            fail();
+        }
+        catch(IOException e)
+        {
+            assertSame(original, e);
+        }
+        
+        IllegalStateException other = new IllegalStateException();
+        try
+        {
+            ParallelTextGenerator.rethrowIOException(other);
+            fail();
+        }
+        catch(IOException e)
+        {
+            fail();
+        }
+        catch(IllegalStateException e)
+        {
+            assertSame(other, e);
+        }
+    }
+    
+    @Test
+    public void parallelGenerationTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        int length = 1000003;
+        byte[] expected = Streams.readBulk(tg.getChunkedInputStream(11, length, 4096, "one", "two"), 8192);
+        
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            ByteBuffer[] buffers = new ByteBuffer[] { ByteBuffer.allocate(100000), ByteBuffer.allocateDirect(length) };
+            tg.getParallelTextGenerator(pool).generate(11, length, 4096, buffers, "one", "two");
+            assertEquals(100000, buffers[0].position());
+            assertEquals(length - 100000, buffers[1].position());
+            byte[] actual = new byte[length];
+            buffers[0].flip();
+            buffers[0].get(actual, 0, 100000);
+            buffers[1].flip();
+            buffers[1].get(actual, 100000, length - 100000);
+            assertArrayEquals(expected, actual);
+            
+            File file = File.createTempFile("textgen", ".txt");
+            try
+            {
+                tg.getParallelTextGenerator(pool).generate(11, length, 4096, file.toPath(), "one", "two");
+                assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+            }
+            finally
+            {
+                file.delete();
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+}
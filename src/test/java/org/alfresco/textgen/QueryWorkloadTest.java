@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class QueryWorkloadTest
+{
+    @Test
+    public void queryWorkloadTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        QueryWorkload workload = tg.getQueryWorkload("text", 10, 20, 1, 4, 42);
+        Set<String> lessFrequent = new HashSet<String>(tg.getWordGenerator().getWordsLessFrequent(19));
+        
+        Iterator<String> queries = workload.iterator(0, 10000);
+        final String[] expected = new String[10000];
+        for(int i = 0; i < 10000; i++)
+        {
+            expected[i] = queries.next();
+            assertTrue(expected[i].startsWith("text:\"") && expected[i].endsWith("\""));
+            String[] words = expected[i].substring(6, expected[i].length() - 1).split(" ");
+            assertTrue(words.length >= 1 && words.length < 4);
+            for(String word : words)
+            {
+                assertTrue(word, lessFrequent.contains(word));
+                assertTrue(word, word.matches("[\\p{IsAlphabetic}\\p{IsDigit}]+"));
+            }
+        }
+        assertEquals(expected[1234], workload.getQuery(1234));
+        
+        final ConcurrentHashMap<Long, String> parallel = new ConcurrentHashMap<Long, String>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            workload.generate(0, 10000, new QueryWorkload.Sink()
+            {
+                public void accept(long index, String query)
+                {
+                    parallel.put(index, query);
+                }
+            }, pool);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        assertEquals(10000, parallel.size());
+        for(int i = 0; i < 10000; i++)
+        {
+            assertEquals(expected[i], parallel.get((long)i));
+        }
+        
+        assertNotEquals(expected[0], tg.getQueryWorkload("text", 10, 20, 1, 4, 43).getQuery(0));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class RandomJumpTest
+{
+    @Test
+    public void testSeekDoubles()
+    {
+        for(long seed : new long[] {0, 1, -1, 42, Long.MAX_VALUE, Long.MIN_VALUE})
+        {
+            Random sequential = new Random(seed);
+            Random jumped = new Random();
+            for(int count = 0; count < 2000; count++)
+            {
+                RandomJump.seekDoubles(jumped, seed, count);
+                assertEquals(sequential.nextDouble(), jumped.nextDouble(), 0);
+            }
+        }
+    }
+    
+    @Test
+    public void testSeekSteps()
+    {
+        Random sequential = new Random(7);
+        Random jumped = new Random();
+        for(int steps = 0; steps < 1000; steps++)
+        {
+            RandomJump.seek(jumped, 7, steps);
+            assertEquals(sequential.nextInt(), jumped.nextInt());
+        }
+    }
+    
+    @Test
+    public void testLongJump()
+    {
+        Random sequential = new Random(3);
+        for(int i = 0; i < 3000000; i++)
+        {
+            sequential.nextDouble();
+        }
+        Random jumped = new Random();
+        RandomJump.seekDoubles(jumped, 3, 3000000);
+        assertEquals(sequential.nextLong(), jumped.nextLong());
+    }
+}
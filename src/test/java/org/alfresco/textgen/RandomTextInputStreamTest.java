@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class RandomTextInputStreamTest
+{
+    /**
+     * A reset whose fixed strings do not fit leaves the stream on the document it had
+     */
+    @Test
+    public void failedResetTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        for(String[] strings : new String[][] { {}, { "one", "two" } })
+        {
+            byte[] expected = Streams.readBulk(tg.getInputStream(1, 100, strings), 4096);
+            for(int before : new int[] { 0, 2, 10 })
+            {
+                RandomTextInputStream stream = tg.getInputStream(1, 100, strings);
+                byte[] start = new byte[before];
+                assertEquals(before, stream.read(start, 0, before));
+                try
+                {
+                    stream.reset(2, 5, "a-very-long-fixed-string");
+                    fail();
+                }
+                catch(IllegalStateException e)
+                {
+                    // Expected
+                }
+                byte[] rest = Streams.readBulk(stream, 4096);
+                assertArrayEquals(Arrays.copyOfRange(expected, before, 100), rest);
+                
+                stream.reset(2, 50, "fits");
+                assertArrayEquals(Streams.readBulk(tg.getInputStream(2, 50, "fits"), 4096), Streams.readBulk(stream, 4096));
+            }
+        }
+    }
+    
+    @Test
+    public void resetTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        String[][] strings = new String[][] { null, {}, { "one" }, { "caf\u00e9", null, "\u20ac\ud83d\ude00", "\ud800x" }, { "alpha beta gamma delta epsilon", "zeta" } };
+        
+        RandomTextInputStream reused = tg.getInputStream(0, 0);
+        byte[] buffer = new byte[1000];
+        for(long seed = 0; seed < 500; seed++)
+        {
+            String[] fixed = strings[(int)(seed % strings.length)];
+            long length = 50 + seed % 300;
+            byte[] expected = Streams.readBulk(tg.getInputStream(seed, length, fixed), buffer.length);
+            
+            reused.reset(seed, length, fixed);
+            assertArrayEquals(expected, Streams.readBulk(reused, buffer.length));
+            assertEquals(-1, reused.read());
+        }
+        
+        for(String string : strings[3])
+        {
+            if(string != null)
+            {
+                byte[] encoded = new byte[string.length() * 3];
+                int end = RandomTextInputStream.encode(string, encoded, 0);
+                assertArrayEquals(string.getBytes("UTF-8"), Arrays.copyOf(encoded, end));
+            }
+        }
+    }
+}
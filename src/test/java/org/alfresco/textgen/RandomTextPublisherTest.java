@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Flow;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class RandomTextPublisherTest
+{
+    @Test
+    public void publisherTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        byte[] expected = Streams.readBulk(tg.getInputStream(3, 100000, "one"), 4096);
+        RandomTextPublisher publisher = tg.getPublisher(3, 100000, 1000, 3, "one");
+        
+        // One buffer at a time, requested from within onNext and released once copied
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        subscriber.publisher = publisher;
+        publisher.subscribe(subscriber);
+        assertTrue(subscriber.complete);
+        assertArrayEquals(expected, subscriber.bytes.toByteArray());
+        assertEquals(100, subscriber.buffers.size());
+        Set<ByteBuffer> distinct = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+        distinct.addAll(subscriber.buffers);
+        assertEquals(1, distinct.size());
+        
+        // Buffers that are not released are never filled again, so they can be read after the document completes
+        subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        tg.getPublisher(3, 100000, 1000, 3, "one").subscribe(subscriber);
+        assertTrue(subscriber.complete);
+        ByteArrayOutputStream later = new ByteArrayOutputStream();
+        for(ByteBuffer buffer : subscriber.buffers)
+        {
+            buffer.rewind();
+            while(buffer.hasRemaining())
+            {
+                later.write(buffer.get());
+            }
+        }
+        assertArrayEquals(expected, later.toByteArray());
+        
+        // Only what is asked for is generated
+        subscriber = new CollectingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(5);
+        assertEquals(5, subscriber.buffers.size());
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.complete);
+        assertArrayEquals(expected, subscriber.bytes.toByteArray());
+        
+        subscriber = new CollectingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(2);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(2);
+        assertEquals(2, subscriber.buffers.size());
+        assertTrue(!subscriber.complete);
+        
+        subscriber = new CollectingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        subscriber.subscription.request(1);
+        assertEquals(0, subscriber.buffers.size());
+        
+        subscriber = new CollectingSubscriber(0);
+        tg.getPublisher(3, 0).subscribe(subscriber);
+        assertTrue(subscriber.complete);
+        
+        subscriber = new CollectingSubscriber(1);
+        tg.getPublisher(3, 2, "too long").subscribe(subscriber);
+        assertTrue(subscriber.error instanceof IllegalStateException);
+    }
+    
+    private static class CollectingSubscriber implements Flow.Subscriber<ByteBuffer>
+    {
+        private final long batch;
+        RandomTextPublisher publisher;
+        Flow.Subscription subscription;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        boolean complete;
+        Throwable error;
+        
+        CollectingSubscriber(long batch)
+        {
+            this.batch = batch;
+        }
+        
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+            if(batch > 0)
+            {
+                subscription.request(batch);
+            }
+        }
+
+        public void onNext(ByteBuffer item)
+        {
+            buffers.add(item);
+            byte[] copy = new byte[item.remaining()];
+            item.get(copy);
+            bytes.write(copy, 0, copy.length);
+            if(publisher != null)
+            {
+                publisher.release(item);
+            }
+            if((batch > 0) && (batch != Long.MAX_VALUE))
+            {
+                subscription.request(batch);
+            }
+        }
+
+        public void onError(Throwable throwable)
+        {
+            error = throwable;
+        }
+
+        public void onComplete()
+        {
+            complete = true;
+        }
+    }
+}
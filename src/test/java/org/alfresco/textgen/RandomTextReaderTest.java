@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class RandomTextReaderTest
+{
+    @Test
+    public void readerTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        String[][] stringSets = new String[][] { {}, { "one", "two" }, { "caf\u00e9", null, "\u65e5\u672c" }, { "\ud800broken" } };
+        long[] lengths = new long[] { 20, 21, 1000, 100000 };
+        int[] bufferSizes = new int[] { 1, 7, 4096 };
+        for(String[] strings : stringSets)
+        {
+            for(long length : lengths)
+            {
+                for(long seed = 0; seed < 5; seed++)
+                {
+                    String expected = Streams.getString(tg.getInputStream(seed, length, strings));
+                    for(int bufferSize : bufferSizes)
+                    {
+                        Reader reader = tg.getReader(seed, length, strings);
+                        StringBuilder actual = new StringBuilder();
+                        char[] buffer = new char[bufferSize];
+                        int read;
+                        while((read = reader.read(buffer, 0, bufferSize)) != -1)
+                        {
+                            assertTrue(read > 0);
+                            actual.append(buffer, 0, read);
+                        }
+                        assertEquals(expected, actual.toString());
+                        assertEquals(length, actual.toString().getBytes("UTF-8").length);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Reads generated content in the ways the tests compare it.
+ * 
+ * @author Andy Hind
+ * @since 1.5
+ */
+final class Streams
+{
+    private Streams()
+    {
+    }
+    
+    static String getString(InputStream is) throws IOException
+    {
+        InputStreamReader reader = new InputStreamReader(is, "UTF-8");
+        int current = -1;
+        StringBuffer buffer = new StringBuffer();
+        while( (current = reader.read()) != -1)
+        {
+            buffer.append((char)current);
+        }
+        return buffer.toString();
+    }
+    
+    static byte[] readSingleBytes(InputStream is) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int current;
+        while((current = is.read()) != -1)
+        {
+            out.write(current);
+        }
+        return out.toByteArray();
+    }
+    
+    static byte[] readBulk(InputStream is, int bufferSize) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize];
+        int read;
+        while((read = is.read(buffer, 0, buffer.length)) != -1)
+        {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+    
+    static String toHex(byte[] bytes)
+    {
+        StringBuilder hex = new StringBuilder();
+        for(byte b : bytes)
+        {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -18,17 +18,33 @@
  */
 package org.alfresco.textgen;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -198,6 +214,250 @@ public class TextGeneratorTest
         }
     }
     
+    /**
+     * The bulk read must produce exactly the same bytes as reading one byte at a time
+     */
+    @Test
+    public void bulkReadTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        for (long seed = 0; seed < 20; seed++)
+        {
+            for (long size : new long[] {0, 1, 17, 1000, 65537})
+            {
+                String[] strings = (seed % 2 == 0 || size < 20) ? new String[0] : new String[] {"\u00a3 10.00", "P010.00"};
+                byte[] single = Streams.readSingleBytes(tg.getInputStream(seed, size, strings));
+                byte[] bulk = Streams.readBulk(tg.getInputStream(seed, size, strings), 1 + (int)(seed * 37));
+                assertEquals(size, single.length);
+                assertArrayEquals(single, bulk);
+            }
+        }
+    }
+    
+    /**
+     * SHA-256 of content generated before any of the optimisations, as seed, length, strings and hash. The strings are
+     * an index into {@link #GOLDEN_STRINGS}.
+     */
+    private static final String[] GOLDEN = new String[] {
+            "0 3 3 7692c3ad3540bb803c020b3aee66cd8887123234ea0c6e7143c0add73ff431ed",
+            "0 13 0 7f37fd30f910afa84c968602d3d5e30dfa4e2976fa401fc4a6803a108b13bfc0",
+            "0 13 2 c086723b26aa9abb1463627b0eea9cac18c281384053812bd1960e8446696f3b",
+            "0 1000 0 71e47ceabdafceebd6a28f3ceed8b5eec46e1eab715e5d6273a2bc26ec52cbbd",
+            "0 1000 1 9568eb35718161d65d64fc6e9cc3813fb348f3f239eec0e939b8e7808afb52a7",
+            "0 1000 2 e7c0ec5ae859bd521f6ec450199267a92c5059439e48238ed7da61a4aeeec247",
+            "0 1000 3 cf109855ee75109f808497c124417f2596c1f41cd2b39bfa39853fd048649d77",
+            "1 65537 0 ec7ea60607a0340467c162a75f4a39bb43d77ff6c32af01f5bf4962912fd3979",
+            "1 65537 1 a660d1b35228dac6a354e3afe92078c17e17687422c41deab58f72336cb9142e",
+            "5 65537 2 65416f1b02535f009bfa49e1341540b596dee32ac2fd14efb4a52e5d2b3cd618",
+            "5 65537 3 6cb0fe4c322459836981ea5c745b5d25fbc89308edb4339ef6ba663e46e398d8",
+            "0 1048576 0 634ce89bec6940cde6bf10e177f51d4ae52f3598bae9a0a1d0eade34c5a12f06",
+            "5 1048576 1 a285845c82201d0ddddcb0b7dde61d0fa9b986d8afba47b0441a357938e6bcc9" };
+    
+    private static final String[][] GOLDEN_STRINGS = new String[][] {
+            {}, { "P100.00", "P010.00", "P001.00" }, { "\u00a3 10.00" }, { "one", "two" } };
+    
+    /**
+     * The content must not change, whichever way it is read
+     */
+    @Test
+    public void goldenContentTest() throws Exception
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        for(String golden : GOLDEN)
+        {
+            String[] fields = golden.split(" ");
+            long seed = Long.parseLong(fields[0]);
+            long length = Long.parseLong(fields[1]);
+            String[] strings = GOLDEN_STRINGS[Integer.parseInt(fields[2])];
+            
+            byte[] bulk = Streams.readBulk(tg.getInputStream(seed, length, strings), 8192);
+            assertEquals(golden, fields[3], Streams.toHex(MessageDigest.getInstance("SHA-256").digest(bulk)));
+            if(length <= 65537)
+            {
+                byte[] single = Streams.readSingleBytes(tg.getInputStream(seed, length, strings));
+                assertEquals(golden, fields[3], Streams.toHex(MessageDigest.getInstance("SHA-256").digest(single)));
+            }
+        }
+    }
+    
+    @Test
+    public void aliasSamplerTest() throws IOException
+    {
+        TextGenerator legacy = new TextGenerator("alfresco/textgen/lexicon-stem-en-test.txt");
+        TextGenerator alias = new TextGenerator("alfresco/textgen/lexicon-stem-en-test.txt", SamplerVersion.ALIAS);
+        assertEquals(SamplerVersion.LEGACY, legacy.getSamplerVersion());
+        assertEquals(SamplerVersion.ALIAS, alias.getSamplerVersion());
+        
+        String content = getString(alias.getInputStream(0, 2000));
+        assertEquals(2000, content.length());
+        assertEquals(content, getString(alias.getInputStream(0, 2000)));
+        assertNotEquals(getString(legacy.getInputStream(0, 2000)), content);
+        
+        int end = 0;
+        for(int i = 1; i < 50; i++)
+        {
+            end = content.indexOf(" ", end+1);
+            assertEquals(content.subSequence(0, end), alias.generateQueryString(0, i, i));
+        }
+    }
+    
+    @Test
+    public void skipTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        byte[] all = Streams.readBulk(tg.getInputStream(3, 10000, "one"), 4096);
+        for(int skip : new int[] {0, 1, 999, 5000, 9999, 10000})
+        {
+            InputStream is = tg.getInputStream(3, 10000, "one");
+            assertEquals(skip, is.skip(skip));
+            byte[] rest = Streams.readBulk(is, 4096);
+            assertArrayEquals(Arrays.copyOfRange(all, skip, all.length), rest);
+        }
+        assertEquals(10000, tg.getInputStream(3, 10000).skip(20000));
+    }
+    
+    @Test
+    public void channelTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        byte[] expected = Streams.readBulk(tg.getInputStream(5, 100000, "\u00a3 10.00"), 4096);
+        
+        for(ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(1000), ByteBuffer.allocateDirect(333) })
+        {
+            ReadableByteChannel channel = tg.getChannel(5, 100000, "\u00a3 10.00");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            while(channel.read(buffer) != -1)
+            {
+                buffer.flip();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                out.write(bytes);
+                buffer.clear();
+            }
+            channel.close();
+            assertArrayEquals(expected, out.toByteArray());
+        }
+        
+        File file = File.createTempFile("textgen", ".txt");
+        try
+        {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+            try
+            {
+                assertEquals(100000, tg.transferTo(5, 100000, channel, "\u00a3 10.00"));
+            }
+            finally
+            {
+                channel.close();
+            }
+            assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+    
+    @Test
+    public void sharedLexiconTest() throws IOException
+    {
+        TextGenerator one = new TextGenerator("alfresco/textgen/lexicon-stem-en-test.txt");
+        TextGenerator two = new TextGenerator("alfresco/textgen/lexicon-stem-en-test.txt", SamplerVersion.ALIAS);
+        assertSame(one.getWordGenerator(), two.getWordGenerator());
+        assertTrue(LexiconCache.size() > 0);
+        
+        LexiconCache.clear();
+        TextGenerator three = new TextGenerator("alfresco/textgen/lexicon-stem-en-test.txt");
+        assertNotSame(one.getWordGenerator(), three.getWordGenerator());
+        assertEquals(getString(one.getInputStream(1, 500)), getString(three.getInputStream(1, 500)));
+    }
+    
+    @Test
+    public void wordsAtTest() throws IOException
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en-test.txt");
+        String content = getString(tg.getInputStream(9, 2000, "P100.00"));
+        String[] words = content.trim().split(" ");
+        for(int i = 1; i < 20; i++)
+        {
+            assertEquals(words[i] + " " + words[i + 1] + " " + words[i + 2], tg.getWordsAt(9, i - 1, 3));
+        }
+        
+        // Deep in a huge document, against drawing every word before
+        Random random = new Random(9);
+        WordSampler sampler = tg.getWordSampler();
+        long drawn = 0;
+        for(long position : new long[] { 1000, 65536, 1000003, 3000000 })
+        {
+            while(drawn < position)
+            {
+                random.nextDouble();
+                drawn++;
+            }
+            StringBuilder expected = new StringBuilder();
+            for(int i = 0; i < 3; i++)
+            {
+                expected.append(i == 0 ? "" : " ").append(tg.getWordGenerator().getWordAt(sampler.getWordIndex(random.nextDouble())));
+                drawn++;
+            }
+            assertEquals(expected.toString(), tg.getWordsAt(9, position, 3));
+        }
+        
+        String query = tg.generateQueryString(9, 3, Integer.MAX_VALUE);
+        assertEquals(3, query.split(" ").length);
+    }
+    
+    @Test
+    public void writeToTest() throws IOException
+    {
+        final TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        for(long length : new long[] { 3, 8, 1000, 200000 })
+        {
+            byte[] expected = Streams.readBulk(tg.getInputStream(7, length, "one", "two"), 8192);
+            
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            WriteStatistics statistics = tg.writeTo(7, length, out, "one", "two");
+            assertEquals(length, statistics.getBytesWritten());
+            assertTrue(statistics.getThroughput() >= 0);
+            assertArrayEquals(expected, out.toByteArray());
+            
+            out = new ByteArrayOutputStream();
+            statistics = tg.writeTo(7, length, Channels.newChannel(out), "one", "two");
+            assertEquals(length, statistics.getBytesWritten());
+            assertArrayEquals(expected, out.toByteArray());
+        }
+        
+        // The buffer each thread reuses is not shared with a transfer started from inside another
+        final byte[] expected = Streams.readBulk(tg.getInputStream(7, 200000), 8192);
+        final byte[] nestedExpected = Streams.readBulk(tg.getInputStream(8, 200000), 8192);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream nested = new ByteArrayOutputStream();
+        final WritableByteChannel channel = Channels.newChannel(out);
+        tg.writeTo(7, 200000, new WritableByteChannel()
+        {
+            public int write(ByteBuffer src) throws IOException
+            {
+                if(nested.size() == 0)
+                {
+                    tg.writeTo(8, 200000, Channels.newChannel(nested));
+                    tg.writeTo(8, 200000, new ByteArrayOutputStream());
+                }
+                return channel.write(src);
+            }
+            
+            public boolean isOpen()
+            {
+                return true;
+            }
+            
+            public void close()
+            {
+            }
+        });
+        assertArrayEquals(expected, out.toByteArray());
+        assertArrayEquals(nestedExpected, nested.toByteArray());
+    }
+    
     @Test
     public void corpusQueryStemEnTest() throws IOException
     {
@@ -270,6 +530,32 @@ public class TextGeneratorTest
     }
     
     @Test
+    @SuppressWarnings("deprecation")
+    public void generateQueriesGoldenTest() throws Exception
+    {
+        TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(captured, true, "UTF-8"));
+        try
+        {
+            tg.generateQueries("text", 10, 20, 1, 4, 20);
+            tg.generateQueries(null, 1, 1000, 2, 5, 200);
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        String queries = captured.toString("UTF-8").replace(System.lineSeparator(), "\n");
+        
+        // Captured from the original implementation
+        assertTrue(queries, queries.startsWith("text:\" reporting\"\ntext:\" fancy finances devoted\"\n"));
+        assertEquals("2dd9eb6d158f7a843047e66fa56097639b1c970805ac1e3a3a0427732c7037d1",
+                Streams.toHex(MessageDigest.getInstance("SHA-256").digest(queries.getBytes("UTF-8"))));
+    }
+    
+    @Test
+    @SuppressWarnings("deprecation")
     public void generateQueries() throws IOException
     {
         TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt");
@@ -20,6 +20,8 @@ package org.alfresco.textgen;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -34,7 +36,7 @@ public class WordGeneratorTest
     @Test
     public void testEmpty()
     {
-        WordGenerator wg = new WordGenerator(2);
+        WordGenerator wg = new WordGenerator.Builder(2).build();
         assertNull(wg.getWord(0));
         assertNull(wg.getWord(0.5));
         assertNull(wg.getWord(1));
@@ -46,8 +48,9 @@ public class WordGeneratorTest
     @Test
     public void testSingle()
     {
-        WordGenerator wg = new WordGenerator(1);
-        wg.addWord("Banana", 1);
+        WordGenerator.Builder builder = new WordGenerator.Builder(1);
+        builder.addWord("Banana", 1);
+        WordGenerator wg = builder.build();
         
         assertEquals("Banana", wg.getWord(0));
         assertEquals("Banana", wg.getWord(0.5));
@@ -62,17 +65,18 @@ public class WordGeneratorTest
     @Test
     public void testEven()
     {
-        WordGenerator wg = new WordGenerator(2);
-        wg.addWord("One", 10);
-        wg.addWord("Two", 10);
-        wg.addWord("Three", 10);
-        wg.addWord("Four", 10);
-        wg.addWord("Five", 10);
-        wg.addWord("Six", 10);
-        wg.addWord("Seven", 10);
-        wg.addWord("Eight", 10);
-        wg.addWord("Nine", 10);
-        wg.addWord("Ten", 10);
+        WordGenerator.Builder builder = new WordGenerator.Builder(2);
+        builder.addWord("One", 10);
+        builder.addWord("Two", 10);
+        builder.addWord("Three", 10);
+        builder.addWord("Four", 10);
+        builder.addWord("Five", 10);
+        builder.addWord("Six", 10);
+        builder.addWord("Seven", 10);
+        builder.addWord("Eight", 10);
+        builder.addWord("Nine", 10);
+        builder.addWord("Ten", 10);
+        WordGenerator wg = builder.build();
         
         assertEquals("One", wg.getWord(0));
         assertEquals("One", wg.getWord(0.09999));
@@ -105,17 +109,18 @@ public class WordGeneratorTest
     @Test
     public void tset2n()
     {
-        WordGenerator wg = new WordGenerator(2);
-        wg.addWord("One", 1);
-        wg.addWord("Two", 2);
-        wg.addWord("Three", 4);
-        wg.addWord("Four", 8);
-        wg.addWord("Five", 16);
-        wg.addWord("Six", 32);
-        wg.addWord("Seven", 64);
-        wg.addWord("Eight", 128);
-        wg.addWord("Nine", 256);
-        wg.addWord("Ten", 512);
+        WordGenerator.Builder builder = new WordGenerator.Builder(2);
+        builder.addWord("One", 1);
+        builder.addWord("Two", 2);
+        builder.addWord("Three", 4);
+        builder.addWord("Four", 8);
+        builder.addWord("Five", 16);
+        builder.addWord("Six", 32);
+        builder.addWord("Seven", 64);
+        builder.addWord("Eight", 128);
+        builder.addWord("Nine", 256);
+        builder.addWord("Ten", 512);
+        WordGenerator wg = builder.build();
         
         assertEquals("One", wg.getWord(0));
         assertEquals("Two", wg.getWord(0.001953125));
@@ -140,4 +145,167 @@ public class WordGeneratorTest
         
         assertEquals(10, wg.getWordCount());
     }
+    
+    @Test
+    public void testAliasEmpty()
+    {
+        WordGenerator wg = new WordGenerator.Builder(2).build();
+        AliasWordSampler sampler = wg.getAliasSampler();
+        assertEquals(-1, sampler.getWordIndex(0));
+        assertEquals(-1, sampler.getWordIndex(0.5));
+        assertEquals(-1, sampler.getWordIndex(1));
+        assertEquals(-1, sampler.getWordIndex(-1));
+        assertEquals(-1, sampler.getWordIndex(2));
+    }
+    
+    @Test
+    public void testAliasEven()
+    {
+        WordGenerator.Builder builder = new WordGenerator.Builder(2);
+        for(int i = 0; i < 10; i++)
+        {
+            builder.addWord("W" + i, 10);
+        }
+        WordGenerator wg = builder.build();
+        AliasWordSampler sampler = wg.getAliasSampler();
+        for(int i = 0; i < 10; i++)
+        {
+            assertEquals(i, sampler.getWordIndex(i / 10d + 0.05));
+        }
+        assertEquals(9, sampler.getWordIndex(1.0));
+    }
+    
+    @Test
+    public void testAlias2n()
+    {
+        WordGenerator.Builder builder = new WordGenerator.Builder(2);
+        for(int i = 0; i < 10; i++)
+        {
+            builder.addWord("W" + i, 1 << i);
+        }
+        WordGenerator wg = builder.build();
+        AliasWordSampler sampler = wg.getAliasSampler();
+        
+        // Sweep the unit interval - each word must be selected in proportion to its frequency
+        int steps = 1023 * 1000;
+        int[] counts = new int[10];
+        for(int i = 0; i < steps; i++)
+        {
+            counts[sampler.getWordIndex((i + 0.5) / steps)]++;
+        }
+        for(int i = 0; i < 10; i++)
+        {
+            assertEquals((1 << i) * 1000, counts[i], 2);
+        }
+        
+        assertSame(sampler, wg.getAliasSampler());
+    }
+    
+    @Test
+    public void testBuilderSnapshot()
+    {
+        WordGenerator.Builder builder = new WordGenerator.Builder(1);
+        builder.addWord("One", 10);
+        WordGenerator first = builder.build();
+        builder.addWord("Two", 10);
+        WordGenerator second = builder.build();
+        
+        assertEquals(1, first.getWordCount());
+        assertEquals("One", first.getWord(0.99));
+        assertEquals(2, second.getWordCount());
+        assertEquals("Two", second.getWord(0.99));
+        assertEquals(2, builder.getWordCount());
+    }
+    
+    @Test
+    public void testWordArena() throws Exception
+    {
+        String[] words = new String[] { "plain", "caf\u00e9", "", "\u20ac\ud83d\ude00", "a bit" };
+        WordGenerator.Builder builder = new WordGenerator.Builder(1);
+        for(String word : words)
+        {
+            builder.addWord(word, 2);
+        }
+        WordGenerator wg = builder.build();
+        
+        byte[] copy = new byte[32];
+        int end = 0;
+        for(int i = 0; i < words.length; i++)
+        {
+            byte[] expected = words[i].getBytes("UTF-8");
+            assertEquals(words[i], wg.getWordAt(i));
+            // Decoded once and shared
+            assertSame(wg.getWordAt(i), wg.getWordAt(i));
+            assertEquals(expected.length, wg.getWordLength(i));
+            assertArrayEquals(expected, wg.getWordBytes(i));
+            assertEquals(expected.length, wg.copyWord(i, copy, 1));
+            assertArrayEquals(expected, Arrays.copyOfRange(copy, 1, 1 + expected.length));
+            assertEquals(end, wg.getWordOffset(i));
+            end += expected.length;
+        }
+        assertEquals(end, wg.getArena().length);
+        
+        // Changing a copy does not change the word
+        wg.getWordBytes(0)[0] = 'X';
+        assertEquals("plain", wg.getWordAt(0));
+    }
+    
+    @Test
+    public void testFrequencyIndex()
+    {
+        WordGenerator.Builder builder = new WordGenerator.Builder(2);
+        builder.addWord("a", 5);
+        builder.addWord("b", 1);
+        builder.addWord("c", 5);
+        builder.addWord("d", 3);
+        builder.addWord("a", 5);
+        builder.addWord("e", Integer.MAX_VALUE * 4L);
+        builder.addWord("f", 1);
+        WordGenerator wg = builder.build();
+        
+        FrequencyIndex index = wg.getFrequencyIndex();
+        assertEquals(6, index.size());
+        assertEquals(0, index.countAtMost(0));
+        assertEquals(2, index.countAtMost(1));
+        assertEquals(2, index.countLessThan(3));
+        assertEquals(5, index.countAtMost(5));
+        assertEquals(6, index.countAtMost(Long.MAX_VALUE));
+        assertEquals("e", index.getWord(5));
+        assertEquals(5, index.getPosition(5));
+        
+        assertEquals(Arrays.asList("a", "c", "d", "b", "f"), wg.getWordsLessFrequent(5));
+        assertEquals(Arrays.asList("a", "c"), wg.getWords(5));
+        assertEquals(Arrays.asList(), wg.getWords(4));
+        assertEquals(Arrays.asList("d", "b", "f"), wg.getWordsLessFrequent(4));
+    }
+    
+    @Test
+    public void testTokens() throws Exception
+    {
+        WordGenerator.Builder builder = new WordGenerator.Builder(2);
+        builder.addWord("according to", 10);
+        builder.addWord("", 10);
+        builder.addWord("to", 10);
+        builder.addWord(" caf\u00e9  to ", 10);
+        WordGenerator wg = builder.build();
+        
+        assertEquals(3, wg.getTokenCount());
+        assertEquals("according", wg.getToken(0));
+        assertEquals("to", wg.getToken(1));
+        assertEquals("caf\u00e9", wg.getToken(2));
+        assertArrayEquals("caf\u00e9".getBytes("UTF-8"), wg.getTokenBytes(2));
+        
+        TokenVocabulary tokens = wg.getTokenVocabulary();
+        int[][] expected = new int[][] { { 0, 1 }, { }, { 1 }, { 2, 1 } };
+        for(int i = 0; i < expected.length; i++)
+        {
+            int start = tokens.getEntryTokenOffset(i);
+            int end = tokens.getEntryTokenOffset(i + 1);
+            assertArrayEquals(expected[i], Arrays.copyOfRange(tokens.getEntryTokens(), start, end));
+        }
+        
+        byte[] to = "to".getBytes("UTF-8");
+        assertEquals(1, tokens.getTokenId(to, 0, to.length));
+        assertEquals(-1, tokens.getTokenId(to, 0, 1));
+    }
 }
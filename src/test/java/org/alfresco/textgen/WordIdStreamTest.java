@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2005-2015 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.textgen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andy Hind
+ * @since 1.5
+ */
+@RunWith(JUnit4.class)
+public class WordIdStreamTest
+{
+    @Test
+    public void wordIdStreamTest() throws IOException
+    {
+        for(SamplerVersion version : SamplerVersion.values())
+        {
+            TextGenerator tg = new TextGenerator("alfresco/textgen/lexicon-stem-en.txt", version);
+            // Tokens that are in the lexicon, tokens that are not and a token repeated across strings
+            String[] strings = new String[] { "the xyzzy  plugh", null, "frobnitz xyzzy" };
+            for(long seed = 0; seed < 200; seed++)
+            {
+                long length = 100 + seed * 37;
+                String text = Streams.getString(tg.getInputStream(seed, length, strings));
+                List<String> expected = CorpusOracle.tokenize(text);
+                
+                WordIdStream ids = tg.getWordIdStream(seed, length, strings);
+                assertFalse(ids.isEntries());
+                int[] buffer = new int[7];
+                List<String> tokens = new ArrayList<String>();
+                int count;
+                while((count = ids.read(buffer, 0, buffer.length)) != -1)
+                {
+                    for(int i = 0; i < count; i++)
+                    {
+                        String token = ids.getWord(buffer[i]);
+                        tokens.add(token);
+                        assertArrayEquals(token.getBytes("UTF-8"), ids.getWordBytes(buffer[i]));
+                        if(token.equals("the"))
+                        {
+                            assertFalse(WordIdStream.isFixedString(buffer[i]));
+                        }
+                        else if(token.equals("xyzzy"))
+                        {
+                            assertEquals(-1, buffer[i]);
+                        }
+                    }
+                }
+                assertEquals(expected, tokens);
+                
+                int[] streamed = tg.getWordIdStream(seed, length, strings).stream().toArray();
+                assertEquals(expected.size(), streamed.length);
+                WordIdStream check = tg.getWordIdStream(seed, length, strings);
+                for(int i = 0; i < streamed.length; i++)
+                {
+                    assertEquals(expected.get(i), check.getWord(streamed[i]));
+                }
+                
+                WordIdStream entries = tg.getEntryIdStream(seed, length, strings);
+                assertTrue(entries.isEntries());
+                StringBuilder words = new StringBuilder();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                boolean fixed = true;
+                while((count = entries.read(buffer, 0, buffer.length)) != -1)
+                {
+                    for(int i = 0; i < count; i++)
+                    {
+                        if(words.length() > 0)
+                        {
+                            words.append(' ');
+                            bytes.write(' ');
+                        }
+                        words.append(entries.getWord(buffer[i]));
+                        bytes.write(entries.getWordBytes(buffer[i]));
+                        if(WordIdStream.isFixedString(buffer[i]))
+                        {
+                            assertTrue(fixed);
+                            assertTrue((buffer[i] == -1) || (buffer[i] == -3));
+                        }
+                        fixed = WordIdStream.isFixedString(buffer[i]);
+                    }
+                }
+                assertEquals(text.trim(), words.toString());
+                assertArrayEquals(text.trim().getBytes("UTF-8"), bytes.toByteArray());
+            }
+        }
+    }
+}